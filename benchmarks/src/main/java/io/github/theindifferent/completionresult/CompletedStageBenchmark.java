@@ -0,0 +1,126 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operators applied to stages that are already completed when the operator is attached,
+ * e.g. results served from a cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CompletedStageBenchmark {
+
+  private static final Function<Integer, Integer> VALUE_MAPPING = i -> i + 1;
+  private static final Function<BenchmarkError, BenchmarkError> ERROR_MAPPING = e -> BenchmarkError.MAPPED;
+  private static final Consumer<Integer> VALUE_CONSUMER = i -> {
+  };
+  private static final Consumer<Throwable> EXCEPTION_CONSUMER = t -> {
+  };
+
+  private final Integer input = 42;
+  private final CompletionResult<Integer, BenchmarkError> value = CompletionResult.forValue(input);
+  private final CompletionResult<Integer, BenchmarkError> error = CompletionResult.forError(BenchmarkError.FAILED);
+  private final CompletionResult<Integer, BenchmarkError> composedValue = CompletionResult.forValue(13);
+  private final CompletionResult<Integer, BenchmarkError> composedError = CompletionResult.forError(BenchmarkError.MAPPED);
+
+  @Benchmark
+  public CompletionResult<Integer, BenchmarkError> forValue() {
+    return CompletionResult.forValue(input);
+  }
+
+  @Benchmark
+  public CompletionResult<Integer, BenchmarkError> forError() {
+    return CompletionResult.forError(BenchmarkError.FAILED);
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenApplyValue() {
+    return value.thenApplyValue(VALUE_MAPPING).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenApplyError() {
+    return error.thenApplyError(ERROR_MAPPING).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenComposeValue() {
+    return value.thenComposeValue(i -> composedValue).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenComposeError() {
+    return error.thenComposeError(e -> composedError).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenCompose() {
+    return value.thenCompose(res -> composedValue).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> onResultValue() {
+    return value.onResultValue(VALUE_CONSUMER).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> onException() {
+    return value.onException(EXCEPTION_CONSUMER).getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> chain() {
+    return value
+        .thenApplyValue(VALUE_MAPPING)
+        .onResultValue(VALUE_CONSUMER)
+        .thenComposeValue(i -> composedValue)
+        .thenApplyError(ERROR_MAPPING)
+        .getBlocking();
+  }
+}
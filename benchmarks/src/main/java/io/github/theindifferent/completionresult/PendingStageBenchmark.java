@@ -0,0 +1,165 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operators attached to stages that are still pending and get completed afterwards, so every operator
+ * goes through the dependent registration and completion path.
+ *
+ * <p>The source stage is created and completed on the benchmark thread to keep thread hand-off out of
+ * the numbers; {@link #baseline()} measures the cost of the source alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class PendingStageBenchmark {
+
+  private static final Function<Integer, Integer> VALUE_MAPPING = i -> i + 1;
+  private static final Function<BenchmarkError, BenchmarkError> ERROR_MAPPING = e -> BenchmarkError.MAPPED;
+  private static final Consumer<Integer> VALUE_CONSUMER = i -> {
+  };
+  private static final Consumer<Throwable> EXCEPTION_CONSUMER = t -> {
+  };
+
+  private final Result<Integer, BenchmarkError> value = Result.forValue(42);
+  private final Result<Integer, BenchmarkError> error = Result.forError(BenchmarkError.FAILED);
+  private final Result<Integer, BenchmarkError> composedValue = Result.forValue(13);
+  private final Result<Integer, BenchmarkError> composedError = Result.forError(BenchmarkError.MAPPED);
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> baseline() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source);
+    source.complete(value);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenApplyValue() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenApplyValue(VALUE_MAPPING);
+    source.complete(value);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenApplyError() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenApplyError(ERROR_MAPPING);
+    source.complete(error);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenComposeValue() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletableFuture<Result<Integer, BenchmarkError>> composed = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenComposeValue(i -> CompletionResult.forStageResult(composed));
+    source.complete(value);
+    composed.complete(composedValue);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenComposeError() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletableFuture<Result<Integer, BenchmarkError>> composed = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenComposeError(e -> CompletionResult.forStageResult(composed));
+    source.complete(error);
+    composed.complete(composedError);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> thenCompose() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletableFuture<Result<Integer, BenchmarkError>> composed = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenCompose(res -> CompletionResult.forStageResult(composed));
+    source.complete(value);
+    composed.complete(composedValue);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> onResultValue() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .onResultValue(VALUE_CONSUMER);
+    source.complete(value);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> onException() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .onException(EXCEPTION_CONSUMER);
+    source.complete(value);
+    return completionResult.getBlocking();
+  }
+
+  @Benchmark
+  public Result<Integer, BenchmarkError> chain() {
+    final CompletableFuture<Result<Integer, BenchmarkError>> source = new CompletableFuture<>();
+    final CompletableFuture<Result<Integer, BenchmarkError>> composed = new CompletableFuture<>();
+    final CompletionResult<Integer, BenchmarkError> completionResult = CompletionResult.forStageResult(source)
+        .thenApplyValue(VALUE_MAPPING)
+        .onResultValue(VALUE_CONSUMER)
+        .thenComposeValue(i -> CompletionResult.forStageResult(composed))
+        .thenApplyError(ERROR_MAPPING);
+    source.complete(value);
+    composed.complete(composedValue);
+    return completionResult.getBlocking();
+  }
+}
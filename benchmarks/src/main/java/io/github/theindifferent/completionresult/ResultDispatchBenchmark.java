@@ -0,0 +1,203 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Branching on a mix of values and errors, with the final {@code Result} against the former layout of
+ * an interface with a value and an error implementation, reproduced here as {@code InterfaceResult}.
+ *
+ * <p>A third implementation of the interface, as user code or a decorator would add, makes the call sites
+ * megamorphic: compare {@code interface*} with {@code -jvmArgsAppend -XX:+UnlockDiagnosticVMOptions
+ * -XX:+PrintInlining} to see the accessors not being inlined.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ResultDispatchBenchmark {
+
+  private static final int SIZE = 1024;
+
+  @SuppressWarnings("unchecked")
+  private final Result<Integer, BenchmarkError>[] results = (Result<Integer, BenchmarkError>[]) new Result<?, ?>[SIZE];
+  private final InterfaceResult[] bimorphic = new InterfaceResult[SIZE];
+  private final InterfaceResult[] megamorphic = new InterfaceResult[SIZE];
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(42);
+    for (int i = 0; i < SIZE; i++) {
+      final int kind = random.nextInt(3);
+      if (kind == 0) {
+        results[i] = Result.forError(BenchmarkError.FAILED);
+        bimorphic[i] = new InterfaceError(BenchmarkError.FAILED);
+        megamorphic[i] = bimorphic[i];
+      } else {
+        results[i] = Result.forValue(i);
+        bimorphic[i] = new InterfaceValue(i);
+        megamorphic[i] = kind == 1 ? bimorphic[i] : new DecoratedValue(bimorphic[i]);
+      }
+    }
+  }
+
+  @Benchmark
+  public long finalResult() {
+    long sum = 0;
+    for (final Result<Integer, BenchmarkError> result : results) {
+      sum += result.isValue() ? result.value() : result.error().ordinal();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long finalResultFold() {
+    long sum = 0;
+    for (final Result<Integer, BenchmarkError> result : results) {
+      sum += result.fold(Integer::intValue, Enum::ordinal);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long interfaceBimorphic() {
+    return sum(bimorphic);
+  }
+
+  @Benchmark
+  public long interfaceMegamorphic() {
+    return sum(megamorphic);
+  }
+
+  private static long sum(final InterfaceResult[] results) {
+    long sum = 0;
+    for (final InterfaceResult result : results) {
+      sum += result.isValue() ? result.value() : result.error().ordinal();
+    }
+    return sum;
+  }
+
+  private interface InterfaceResult {
+
+    Integer value();
+
+    BenchmarkError error();
+
+    boolean isValue();
+  }
+
+  private static final class InterfaceValue implements InterfaceResult {
+
+    private final Integer value;
+
+    private InterfaceValue(final Integer value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer value() {
+      return value;
+    }
+
+    @Override
+    public BenchmarkError error() {
+      throw new IllegalStateException("Successful result does not have error");
+    }
+
+    @Override
+    public boolean isValue() {
+      return true;
+    }
+  }
+
+  private static final class InterfaceError implements InterfaceResult {
+
+    private final BenchmarkError error;
+
+    private InterfaceError(final BenchmarkError error) {
+      this.error = error;
+    }
+
+    @Override
+    public Integer value() {
+      throw new IllegalStateException("Error result does not have value");
+    }
+
+    @Override
+    public BenchmarkError error() {
+      return error;
+    }
+
+    @Override
+    public boolean isValue() {
+      return false;
+    }
+  }
+
+  private static final class DecoratedValue implements InterfaceResult {
+
+    private final InterfaceResult delegate;
+
+    private DecoratedValue(final InterfaceResult delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Integer value() {
+      return delegate.value();
+    }
+
+    @Override
+    public BenchmarkError error() {
+      return delegate.error();
+    }
+
+    @Override
+    public boolean isValue() {
+      return delegate.isValue();
+    }
+  }
+}
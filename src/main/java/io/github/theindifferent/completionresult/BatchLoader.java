@@ -0,0 +1,276 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Collects individual loads into batches dispatched to a single batch function.
+ *
+ * <p>A batch is dispatched once {@code maxBatchSize} loads are queued, or when the window started by the first
+ * queued load passes, whichever happens first; batches of a passed window are dispatched on the executor of the loader,
+ * not on the thread of the timer. Loads of the same key within a batch share one entry of the keys
+ * passed to the batch function. Keys missing from the returned map complete with the missing error; an error
+ * or an exception of the whole batch completes all of its loads with it.
+ *
+ * @param <K> the class of the keys
+ * @param <V> the class of the values
+ * @param <E> the enum class of the error
+ */
+public final class BatchLoader<K, V, E extends Enum<E>> {
+
+  private final Queue<Load<K, V, E>> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final Function<List<K>, CompletionResult<Map<K, Result<V, E>>, E>> batchFunction;
+  private final int maxBatchSize;
+  private final long windowNanos;
+  private final E missingError;
+  private final Timer timer;
+  private final Executor executor;
+
+  private BatchLoader(@NonNull final Function<List<K>, CompletionResult<Map<K, Result<V, E>>, E>> batchFunction,
+                      final int maxBatchSize,
+                      final long windowNanos,
+                      @NonNull final E missingError,
+                      @NonNull final Timer timer,
+                      @NonNull final Executor executor) {
+    this.batchFunction = batchFunction;
+    this.maxBatchSize = maxBatchSize;
+    this.windowNanos = windowNanos;
+    this.missingError = missingError;
+    this.timer = timer;
+    this.executor = executor;
+  }
+
+  /**
+   * Same as {@link #create(Function, int, Duration, Enum, Timer)}, with the windows scheduled on {@link Timer#shared()}.
+   *
+   * @param batchFunction function loading the results of a batch of keys
+   * @param maxBatchSize the maximum number of loads in a batch
+   * @param window the time to wait for more loads after the first one of a batch
+   * @param missingError error of the keys missing from the results of the batch function
+   * @param <K> the class of the keys
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return the loader
+   */
+  @NonNull
+  public static <K, V, E extends Enum<E>> BatchLoader<K, V, E> create(
+      @NonNull final Function<List<K>, CompletionResult<Map<K, Result<V, E>>, E>> batchFunction,
+      final int maxBatchSize,
+      @NonNull final Duration window,
+      @NonNull final E missingError) {
+    return create(batchFunction, maxBatchSize, window, missingError, Timer.shared());
+  }
+
+  /**
+   * Same as {@link #create(Function, int, Duration, Enum, Timer, Executor)}, with the batches of passed windows
+   * dispatched on the default asynchronous executor.
+   *
+   * @param batchFunction function loading the results of a batch of keys
+   * @param maxBatchSize the maximum number of loads in a batch
+   * @param window the time to wait for more loads after the first one of a batch
+   * @param missingError error of the keys missing from the results of the batch function
+   * @param timer timer to schedule the windows on
+   * @param <K> the class of the keys
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return the loader
+   * @throws IllegalArgumentException if {@code maxBatchSize} is not positive or {@code window} is negative
+   */
+  @NonNull
+  public static <K, V, E extends Enum<E>> BatchLoader<K, V, E> create(
+      @NonNull final Function<List<K>, CompletionResult<Map<K, Result<V, E>>, E>> batchFunction,
+      final int maxBatchSize,
+      @NonNull final Duration window,
+      @NonNull final E missingError,
+      @NonNull final Timer timer) {
+    return create(batchFunction, maxBatchSize, window, missingError, timer, CompletionResult.ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Returns a new batch loader.
+   *
+   * @param batchFunction function loading the results of a batch of keys
+   * @param maxBatchSize the maximum number of loads in a batch
+   * @param window the time to wait for more loads after the first one of a batch
+   * @param missingError error of the keys missing from the results of the batch function
+   * @param timer timer to schedule the windows on
+   * @param executor executor calling the batch function once a window passed
+   * @param <K> the class of the keys
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return the loader
+   * @throws IllegalArgumentException if {@code maxBatchSize} is not positive or {@code window} is negative
+   */
+  @NonNull
+  public static <K, V, E extends Enum<E>> BatchLoader<K, V, E> create(
+      @NonNull final Function<List<K>, CompletionResult<Map<K, Result<V, E>>, E>> batchFunction,
+      final int maxBatchSize,
+      @NonNull final Duration window,
+      @NonNull final E missingError,
+      @NonNull final Timer timer,
+      @NonNull final Executor executor) {
+    requireNonNull(batchFunction);
+    requireNonNull(window);
+    requireNonNull(missingError);
+    requireNonNull(timer);
+    requireNonNull(executor);
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+    }
+    if (window.isNegative()) {
+      throw new IllegalArgumentException("Window must not be negative: " + window);
+    }
+    return new BatchLoader<>(batchFunction, maxBatchSize, window.toNanos(), missingError, timer, executor);
+  }
+
+  /**
+   * Queues the load of the key into the next batch.
+   *
+   * @param key the key
+   * @return result of the key, completed once the batch completes
+   */
+  @NonNull
+  public CompletionResult<V, E> load(@NonNull final K key) {
+    requireNonNull(key);
+    final Load<K, V, E> load = new Load<>(key);
+    queue.add(load);
+    if (queued.incrementAndGet() >= maxBatchSize) {
+      dispatchBatch();
+    }
+    if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+      timer.schedule(this::flush, windowNanos, TimeUnit.NANOSECONDS);
+    }
+    return CompletionResult.forStageResult(load.future);
+  }
+
+  /**
+   * Dispatches all the queued loads right away, in batches of at most {@code maxBatchSize}.
+   */
+  public void dispatch() {
+    // cleared before draining, so that loads queued after the drain schedule a new window:
+    scheduled.set(false);
+    while (dispatchBatch()) {
+      // until the queue is drained
+    }
+  }
+
+  // the window passed, the timer task only hands the batches off to the executor:
+  private void flush() {
+    try {
+      executor.execute(this::dispatch);
+    } catch (final Throwable rejected) {
+      scheduled.set(false);
+      Load<K, V, E> load;
+      while ((load = queue.poll()) != null) {
+        queued.decrementAndGet();
+        CompletionResult.composeExceptionImpl(load.future, rejected);
+      }
+    }
+  }
+
+  private boolean dispatchBatch() {
+    final Map<K, List<CompletableFuture<Result<V, E>>>> batch = new LinkedHashMap<>();
+    int polled = 0;
+    Load<K, V, E> load;
+    while (polled < maxBatchSize && (load = queue.poll()) != null) {
+      batch.computeIfAbsent(load.key, key -> new ArrayList<>(1)).add(load.future);
+      polled++;
+    }
+    if (polled == 0) {
+      return false;
+    }
+    queued.addAndGet(-polled);
+    CompletionResult<Map<K, Result<V, E>>, E> results;
+    try {
+      results = requireNonNull(batchFunction.apply(new ArrayList<>(batch.keySet())));
+    } catch (final Throwable batchThrowable) {
+      final CompletableFuture<Result<Map<K, Result<V, E>>, E>> failed = new CompletableFuture<>();
+      CompletionResult.composeExceptionImpl(failed, batchThrowable);
+      results = CompletionResult.forStageResult(failed);
+    }
+    results.whenComplete((res, throwable) -> complete(batch, res, throwable));
+    return true;
+  }
+
+  private void complete(@NonNull final Map<K, List<CompletableFuture<Result<V, E>>>> batch,
+                        @Nullable final Result<Map<K, Result<V, E>>, E> results,
+                        @Nullable final Throwable throwable) {
+    for (final Map.Entry<K, List<CompletableFuture<Result<V, E>>>> entry : batch.entrySet()) {
+      final Result<V, E> result;
+      if (throwable != null || results == null) {
+        result = null;
+      } else if (results.isError()) {
+        result = Result.forError(results.error());
+      } else {
+        final Map<K, Result<V, E>> values = results.value();
+        final Result<V, E> found = values == null ? null : values.get(entry.getKey());
+        result = found != null ? found : Result.forError(missingError);
+      }
+      for (final CompletableFuture<Result<V, E>> future : entry.getValue()) {
+        if (throwable != null) {
+          CompletionResult.composeExceptionImpl(future, throwable);
+        } else {
+          future.complete(result);
+        }
+      }
+    }
+  }
+
+  private static final class Load<K, V, E extends Enum<E>> {
+
+    private final K key;
+    private final CompletableFuture<Result<V, E>> future = new CompletableFuture<>();
+
+    private Load(@NonNull final K key) {
+      this.key = key;
+    }
+  }
+}
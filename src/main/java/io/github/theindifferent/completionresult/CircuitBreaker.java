@@ -0,0 +1,295 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Circuit breaker tripping on the error codes of {@code CompletionResult}.
+ *
+ * <p>Errors are counted per constant over a sliding window; the circuit opens as soon as the count of
+ * a constant reaches its threshold, constants without a threshold, such as "not found", are never counted.
+ * While open, calls complete with the open error right away without invoking the supplier. After the open
+ * duration a single trial call is let through: a value, or an error without a threshold, closes the circuit,
+ * anything else opens it again. A trial that does not complete within the open duration counts as failed,
+ * the next call opens the circuit again, and only the outcome of the latest trial is taken into account.
+ *
+ * <p>The breaker is lock-free. The window is a ring of buckets, each holding one {@code LongAdder} per counted
+ * constant, indexed by ordinal: adders are striped per thread under contention, so concurrent callers failing
+ * with the same error do not contend on one counter either. Counts are approximate when a bucket is recycled
+ * concurrently with an increment.
+ *
+ * @param <E> the enum class of the error
+ */
+public final class CircuitBreaker<E extends Enum<E>> {
+
+  private static final int BUCKETS = 10;
+  private static final int CLOSED = 0;
+  private static final int OPEN = 1;
+  private static final int HALF_OPEN = 2;
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicLongFieldUpdater<CircuitBreaker> OPENED =
+      AtomicLongFieldUpdater.newUpdater(CircuitBreaker.class, "openedNanos");
+
+  /**
+   * State of a circuit breaker.
+   */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  // threshold per ordinal, 0 for errors that are not counted:
+  private final int[] thresholds;
+  private final int constants;
+  private final long bucketNanos;
+  private final long openNanos;
+  private final E openError;
+  // counters of bucket b are at [b * constants, (b + 1) * constants), null for errors that are not counted:
+  private final LongAdder[] counters;
+  // tick of System.nanoTime() / bucketNanos the bucket holds the counts of:
+  private final AtomicLongArray ticks;
+  private final AtomicInteger state = new AtomicInteger(CLOSED);
+  // time the circuit opened, or the trial started while half open; swapped by the caller changing the state:
+  private volatile long openedNanos;
+  // number of the latest trial, the outcomes of earlier ones are ignored:
+  private final AtomicInteger trials = new AtomicInteger();
+
+  private CircuitBreaker(@NonNull final int[] thresholds,
+                         final long bucketNanos,
+                         final long openNanos,
+                         @NonNull final E openError) {
+    this.thresholds = thresholds;
+    this.constants = thresholds.length;
+    this.bucketNanos = bucketNanos;
+    this.openNanos = openNanos;
+    this.openError = openError;
+    this.counters = new LongAdder[BUCKETS * constants];
+    for (int index = 0; index < counters.length; index++) {
+      if (thresholds[index % constants] != 0) {
+        counters[index] = new LongAdder();
+      }
+    }
+    this.ticks = new AtomicLongArray(BUCKETS);
+    final long tick = tick();
+    for (int bucket = 0; bucket < BUCKETS; bucket++) {
+      ticks.set(bucket, tick - BUCKETS);
+    }
+  }
+
+  /**
+   * Returns a new closed circuit breaker.
+   *
+   * @param thresholds number of errors within the window opening the circuit, per error constant
+   * @param window the duration errors are counted over
+   * @param openDuration the duration the circuit stays open before a trial call
+   * @param openError error to complete the calls with while the circuit is open
+   * @param <E> the enum class of the error
+   * @return the circuit breaker
+   * @throws IllegalArgumentException if a threshold is not positive or a duration is too short
+   */
+  @NonNull
+  public static <E extends Enum<E>> CircuitBreaker<E> create(@NonNull final Map<E, Integer> thresholds,
+                                                             @NonNull final Duration window,
+                                                             @NonNull final Duration openDuration,
+                                                             @NonNull final E openError) {
+    requireNonNull(thresholds);
+    requireNonNull(window);
+    requireNonNull(openDuration);
+    requireNonNull(openError);
+    final int[] byOrdinal = new int[openError.getDeclaringClass().getEnumConstants().length];
+    for (final Map.Entry<E, Integer> threshold : thresholds.entrySet()) {
+      final int count = threshold.getValue();
+      if (count <= 0) {
+        throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+      }
+      byOrdinal[threshold.getKey().ordinal()] = count;
+    }
+    final long bucketNanos = window.toNanos() / BUCKETS;
+    if (bucketNanos <= 0) {
+      throw new IllegalArgumentException("Window is too short: " + window);
+    }
+    if (openDuration.isNegative()) {
+      throw new IllegalArgumentException("Open duration must not be negative: " + openDuration);
+    }
+    return new CircuitBreaker<>(byOrdinal, bucketNanos, openDuration.toNanos(), openError);
+  }
+
+  /**
+   * Invokes the supplier unless the circuit is open, and counts the error of its result.
+   *
+   * @param supplier supplier of the result
+   * @param <V> the class of the value
+   * @return result of the supplier, or the open error if the circuit is open
+   */
+  @NonNull
+  public <V> CompletionResult<V, E> call(@NonNull final Supplier<CompletionResult<V, E>> supplier) {
+    requireNonNull(supplier);
+    final int current = state.get();
+    if (current == CLOSED) {
+      final CompletionResult<V, E> result = invoke(supplier);
+      result.whenComplete((res, throwable) -> {
+        if (res != null && res.isError()) {
+          record(res.error());
+        }
+      });
+      return result;
+    }
+    final long opened = openedNanos;
+    final long now = System.nanoTime();
+    if (now - opened < openNanos || !OPENED.compareAndSet(this, opened, now)) {
+      return CompletionResult.forError(openError);
+    }
+    if (current == HALF_OPEN) {
+      // the trial did not complete within the open duration:
+      state.compareAndSet(HALF_OPEN, OPEN);
+      return CompletionResult.forError(openError);
+    }
+    state.compareAndSet(OPEN, HALF_OPEN);
+    final int number = trials.incrementAndGet();
+    final CompletionResult<V, E> trial = invoke(supplier);
+    trial.whenComplete((res, throwable) -> {
+      if (trials.get() != number) {
+        return;
+      }
+      if (res != null && (res.isValue() || thresholds[res.error().ordinal()] == 0)) {
+        close();
+      } else {
+        open(HALF_OPEN);
+      }
+    });
+    return trial;
+  }
+
+  /**
+   * Returns the current state of the circuit.
+   *
+   * @return the state
+   */
+  @NonNull
+  public State state() {
+    switch (state.get()) {
+      case CLOSED:
+        return State.CLOSED;
+      case OPEN:
+        return State.OPEN;
+      default:
+        return State.HALF_OPEN;
+    }
+  }
+
+  private static <V, E extends Enum<E>> CompletionResult<V, E> invoke(@NonNull final Supplier<CompletionResult<V, E>> supplier) {
+    try {
+      return requireNonNull(supplier.get());
+    } catch (final Throwable supplierThrowable) {
+      final CompletableFuture<Result<V, E>> future = new CompletableFuture<>();
+      CompletionResult.composeExceptionImpl(future, supplierThrowable);
+      return CompletionResult.forStageResult(future);
+    }
+  }
+
+  private void record(@NonNull final E error) {
+    final int ordinal = error.ordinal();
+    final int threshold = thresholds[ordinal];
+    if (threshold == 0) {
+      return;
+    }
+    final long tick = tick();
+    final int bucket = (int) Math.floorMod(tick, (long) BUCKETS);
+    final long bucketTick = ticks.get(bucket);
+    if (bucketTick < tick && ticks.compareAndSet(bucket, bucketTick, tick)) {
+      // the bucket held counts of an older tick, recycle it:
+      reset(bucket * constants, (bucket + 1) * constants);
+    }
+    counters[bucket * constants + ordinal].increment();
+    long count = 0;
+    for (int other = 0; other < BUCKETS; other++) {
+      if (tick - ticks.get(other) < BUCKETS) {
+        count += counters[other * constants + ordinal].sum();
+      }
+    }
+    if (count >= threshold) {
+      open(CLOSED);
+    }
+  }
+
+  private void open(final int from) {
+    if (state.get() != from) {
+      return;
+    }
+    // written before the state, so that callers seeing the open state see the time too:
+    openedNanos = System.nanoTime();
+    state.compareAndSet(from, OPEN);
+  }
+
+  private void close() {
+    reset(0, counters.length);
+    // a trial completing after it timed out still closes the circuit:
+    if (!state.compareAndSet(HALF_OPEN, CLOSED)) {
+      state.compareAndSet(OPEN, CLOSED);
+    }
+  }
+
+  private void reset(final int from, final int to) {
+    for (int index = from; index < to; index++) {
+      if (counters[index] != null) {
+        counters[index].reset();
+      }
+    }
+  }
+
+  private long tick() {
+    return System.nanoTime() / bucketNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitBreaker{"
+           + "state="
+           + state()
+           + ", openError="
+           + openError
+           + '}';
+  }
+}
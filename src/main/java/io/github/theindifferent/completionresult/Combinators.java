@@ -0,0 +1,241 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Implementation of the static combinators of {@link CompletionResult}.
+ *
+ * <p>Every combinator subscribes once to each input and counts the outcomes down in a single atomic counter,
+ * outcomes are stored by the index of the input.
+ */
+final class Combinators {
+
+  private Combinators() {
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<List<V>, E> allValues(@NonNull final Collection<CompletionResult<V, E>> inputs) {
+    if (inputs.isEmpty()) {
+      return CompletionResult.forValue(Collections.emptyList());
+    }
+    return subscribe(inputs, new AllValues<>(inputs.size()));
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<V, E> firstValue(@NonNull final Collection<CompletionResult<V, E>> inputs) {
+    if (inputs.isEmpty()) {
+      throw new IllegalArgumentException("No results to choose the value from");
+    }
+    return subscribe(inputs, new FirstValue<>(inputs.size()));
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<Partition<V, E>, E> partition(@NonNull final Collection<CompletionResult<V, E>> inputs,
+                                                                               @NonNull final Class<E> errorType) {
+    if (inputs.isEmpty()) {
+      return CompletionResult.forValue(new Partition<>(Collections.emptyList(), new EnumMap<>(errorType)));
+    }
+    return subscribe(inputs, new Partitioning<>(inputs.size(), errorType));
+  }
+
+  private static <V, E extends Enum<E>, R, F extends Enum<F>> CompletionResult<R, F> subscribe(
+      @NonNull final Collection<CompletionResult<V, E>> inputs,
+      @NonNull final Aggregation<V, E, R, F> aggregation) {
+    int index = 0;
+    for (final CompletionResult<V, E> input : inputs) {
+      final int inputIndex = index++;
+      requireNonNull(input).whenComplete((res, throwable) -> aggregation.accept(inputIndex, res, throwable));
+    }
+    inputs.forEach(CompletionResult::addDependent);
+    aggregation.future.onCancel(() -> inputs.forEach(CompletionResult::releaseDependent));
+    return CompletionResult.forPromise(aggregation.future);
+  }
+
+  private abstract static class Aggregation<V, E extends Enum<E>, R, F extends Enum<F>> {
+
+    final Promise<Result<R, F>> future = new Promise<>();
+    // written before the countdown, read after it reached zero:
+    final Object[] outcomes;
+    private final AtomicInteger remaining;
+
+    Aggregation(final int size) {
+      this.outcomes = new Object[size];
+      this.remaining = new AtomicInteger(size);
+    }
+
+    final void accept(final int index, @Nullable final Result<V, E> result, @Nullable final Throwable throwable) {
+      if (future.isDone()) {
+        return;
+      }
+      final boolean counted;
+      if (throwable != null) {
+        counted = onException(index, throwable);
+      } else if (result == null) {
+        counted = onException(index, new NullPointerException("Stage was completed with null result"));
+      } else {
+        counted = onResult(index, result);
+      }
+      if (counted && remaining.decrementAndGet() == 0) {
+        finish();
+      }
+    }
+
+    /**
+     * Records the result, returns {@code false} if the aggregation was completed by it.
+     */
+    abstract boolean onResult(int index, @NonNull Result<V, E> result);
+
+    /**
+     * Records the exception, by default completes the aggregation exceptionally.
+     */
+    boolean onException(final int index, @NonNull final Throwable throwable) {
+      CompletionResult.composeExceptionImpl(future, throwable);
+      return false;
+    }
+
+    /**
+     * Completes the aggregation once all inputs were counted.
+     */
+    abstract void finish();
+  }
+
+  private static final class AllValues<V, E extends Enum<E>> extends Aggregation<V, E, List<V>, E> {
+
+    AllValues(final int size) {
+      super(size);
+    }
+
+    @Override
+    boolean onResult(final int index, @NonNull final Result<V, E> result) {
+      if (result.isError()) {
+        future.complete(Result.forError(result.error()));
+        return false;
+      }
+      outcomes[index] = result.value();
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void finish() {
+      final List<V> values = new ArrayList<>(outcomes.length);
+      for (final Object outcome : outcomes) {
+        values.add((V) outcome);
+      }
+      future.complete(Result.forValue(values));
+    }
+  }
+
+  private static final class FirstValue<V, E extends Enum<E>> extends Aggregation<V, E, V, E> {
+
+    FirstValue(final int size) {
+      super(size);
+    }
+
+    @Override
+    boolean onResult(final int index, @NonNull final Result<V, E> result) {
+      if (result.isValue()) {
+        future.complete(result);
+        return false;
+      }
+      outcomes[index] = result.error();
+      return true;
+    }
+
+    @Override
+    boolean onException(final int index, @NonNull final Throwable throwable) {
+      // another input may still provide the value:
+      outcomes[index] = throwable;
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void finish() {
+      // no values, the first error in the order of inputs wins over exceptions:
+      for (final Object outcome : outcomes) {
+        if (outcome instanceof Enum) {
+          future.complete(Result.forError((E) outcome));
+          return;
+        }
+      }
+      CompletionResult.composeExceptionImpl(future, (Throwable) outcomes[0]);
+    }
+  }
+
+  private static final class Partitioning<V, E extends Enum<E>> extends Aggregation<V, E, Partition<V, E>, E> {
+
+    private final Class<E> errorType;
+
+    Partitioning(final int size, @NonNull final Class<E> errorType) {
+      super(size);
+      this.errorType = errorType;
+    }
+
+    @Override
+    boolean onResult(final int index, @NonNull final Result<V, E> result) {
+      outcomes[index] = result;
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void finish() {
+      final E[] constants = errorType.getEnumConstants();
+      final List<V> values = new ArrayList<>(outcomes.length);
+      final long[] counts = new long[constants.length];
+      for (final Object outcome : outcomes) {
+        final Result<V, E> result = (Result<V, E>) outcome;
+        if (result.isValue()) {
+          values.add(result.value());
+        } else {
+          counts[result.error().ordinal()]++;
+        }
+      }
+      final EnumMap<E, Long> errorCounts = new EnumMap<>(errorType);
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] != 0) {
+          errorCounts.put(constants[i], counts[i]);
+        }
+      }
+      future.complete(Result.forValue(new Partition<>(values, errorCounts)));
+    }
+  }
+}
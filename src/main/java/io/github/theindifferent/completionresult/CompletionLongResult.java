@@ -0,0 +1,342 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A promise containing either an unboxed {@code long} value or error code.
+ *
+ * <p>Same as {@code CompletionResult<Long, E>}, without allocating a {@code Long} for every value: results hold
+ * a {@link LongResult}, and the mappings take and return {@code long}s.
+ *
+ * @param <E> the enum class of the error
+ */
+public final class CompletionLongResult<E extends Enum<E>> {
+
+  // exactly one of the two is not null:
+  @Nullable
+  private final LongResult<E> result;
+  @Nullable
+  private final Promise<LongResult<E>> promise;
+
+  private CompletionLongResult(@Nullable final LongResult<E> result, @Nullable final Promise<LongResult<E>> promise) {
+    this.result = result;
+    this.promise = promise;
+  }
+
+  static <E extends Enum<E>> CompletionLongResult<E> forPromise(@NonNull final Promise<LongResult<E>> promise) {
+    return new CompletionLongResult<>(null, promise);
+  }
+
+  static <E extends Enum<E>> CompletionLongResult<E> forException(@NonNull final Throwable throwable) {
+    return forPromise(failed(throwable));
+  }
+
+  public static <E extends Enum<E>> CompletionLongResult<E> forValue(final long value) {
+    return new CompletionLongResult<>(LongResult.<E>forValue(value), null);
+  }
+
+  public static <E extends Enum<E>> CompletionLongResult<E> forError(final E error) {
+    return new CompletionLongResult<>(LongResult.forError(error), null);
+  }
+
+  public static <E extends Enum<E>> CompletionLongResult<E> forLongResult(final LongResult<E> result) {
+    return new CompletionLongResult<>(requireNonNull(result), null);
+  }
+
+  /**
+   * Returns a {@code CompletionLongResult} completed with the stage, cancelling it cancels the stage.
+   *
+   * @param stage the stage of the result
+   * @param <E> the enum class of the error
+   * @return result completed with the stage
+   */
+  public static <E extends Enum<E>> CompletionLongResult<E> forStageResult(final CompletionStage<LongResult<E>> stage) {
+    requireNonNull(stage);
+    final Promise<LongResult<E>> promise = new Promise<>();
+    stage.whenComplete((res, throwable) -> {
+      if (throwable != null) {
+        CompletionResult.composeExceptionImpl(promise, throwable);
+      } else if (res == null) {
+        promise.fail(new NullPointerException("Stage was completed with null result"));
+      } else {
+        promise.complete(res);
+      }
+    });
+    promise.onCancel(() -> {
+      try {
+        stage.toCompletableFuture().cancel(true);
+      } catch (final UnsupportedOperationException ignore) {
+        // the stage does not support cancellation
+      }
+    });
+    return forPromise(promise);
+  }
+
+  /**
+   * Returns a {@code CompletionLongResult} holding the value mapped by the function, or the error of this result.
+   *
+   * @param valueMapping mapping of the value
+   * @return result of the mapping
+   */
+  public CompletionLongResult<E> thenApplyAsLong(final LongUnaryOperator valueMapping) {
+    requireNonNull(valueMapping);
+    if (result != null) {
+      try {
+        return forLongResult(result.map(valueMapping));
+      } catch (final Throwable mappingThrowable) {
+        return forPromise(failed(mappingThrowable));
+      }
+    }
+    return forPromise(applyImpl(res -> res.map(valueMapping)));
+  }
+
+  /**
+   * Returns a {@code CompletionResult} holding the value mapped to an instance, or the error of this result.
+   *
+   * @param valueMapping mapping of the value to a non-null instance
+   * @param <V> the class of the mapped value
+   * @return result of the mapping
+   */
+  public <V> CompletionResult<V, E> mapToObj(final LongFunction<V> valueMapping) {
+    requireNonNull(valueMapping);
+    if (result != null) {
+      try {
+        return CompletionResult.forResult(result.mapToObj(valueMapping));
+      } catch (final Throwable mappingThrowable) {
+        return CompletionResult.forPromise(failed(mappingThrowable));
+      }
+    }
+    return CompletionResult.forPromise(applyImpl(res -> res.mapToObj(valueMapping)));
+  }
+
+  public CompletionResult<Long, E> boxed() {
+    return mapToObj(Long::valueOf);
+  }
+
+  public <F extends Enum<F>> CompletionLongResult<F> thenApplyError(final Function<E, F> errorMapping) {
+    requireNonNull(errorMapping);
+    if (result != null) {
+      try {
+        return forLongResult(mapError(result, errorMapping));
+      } catch (final Throwable mappingThrowable) {
+        return forPromise(failed(mappingThrowable));
+      }
+    }
+    return forPromise(applyImpl(res -> mapError(res, errorMapping)));
+  }
+
+  public CompletionLongResult<E> onResultValue(final LongConsumer valueConsumer) {
+    requireNonNull(valueConsumer);
+    return onResult(res -> {
+      if (res.isValue()) {
+        valueConsumer.accept(res.value());
+      }
+    });
+  }
+
+  public CompletionLongResult<E> onResultError(final Consumer<E> errorConsumer) {
+    requireNonNull(errorConsumer);
+    return onResult(res -> {
+      if (res.isError()) {
+        errorConsumer.accept(res.error());
+      }
+    });
+  }
+
+  /**
+   * Returns a {@code CompletionLongResult} completed with the result of the mapping of the value, or holding
+   * the error of this result.
+   *
+   * @param valueMapping mapping of the value to the next result
+   * @return result of the mapping
+   */
+  public CompletionLongResult<E> thenComposeValue(final LongFunction<CompletionLongResult<E>> valueMapping) {
+    requireNonNull(valueMapping);
+    if (result != null && result.isError()) {
+      return this;
+    }
+    final Promise<LongResult<E>> future = new Promise<>();
+    whenComplete((res, throwable) -> {
+      if (throwable != null) {
+        CompletionResult.composeExceptionImpl(future, throwable);
+        return;
+      }
+      if (res.isError()) {
+        future.complete(res);
+        return;
+      }
+      final CompletionLongResult<E> mapped;
+      try {
+        mapped = requireNonNull(valueMapping.apply(res.value()));
+      } catch (final Throwable mappingThrowable) {
+        CompletionResult.composeExceptionImpl(future, mappingThrowable);
+        return;
+      }
+      mapped.cancelledWith(future);
+      mapped.whenComplete((mappedResult, mappedThrowable) -> {
+        if (mappedThrowable != null) {
+          future.fail(mappedThrowable);
+        } else {
+          future.complete(mappedResult);
+        }
+      });
+    });
+    cancelledWith(future);
+    return forPromise(future);
+  }
+
+  /**
+   * Cancels this result if it is pending, and the results it was derived from.
+   *
+   * @return {@code true} if this call cancelled the result
+   * @see CompletionResult#cancel()
+   */
+  public boolean cancel() {
+    return promise != null && promise.cancel();
+  }
+
+  // registers the promise as a dependent of this result, which is cancelled once all its dependents are cancelled:
+  private void cancelledWith(@NonNull final Promise<?> dependent) {
+    final Promise<LongResult<E>> pending = promise;
+    if (pending == null) {
+      return;
+    }
+    pending.addDependent();
+    dependent.onCancel(() -> {
+      if (pending.releaseDependent()) {
+        pending.cancel();
+      }
+    });
+  }
+
+  @NonNull
+  public CompletionStage<LongResult<E>> toCompletionStage() {
+    if (promise != null) {
+      return promise.toCompletableFuture();
+    }
+    return CompletableFuture.completedFuture(result);
+  }
+
+  /**
+   * Waits for the result, parking the current thread until it is available.
+   *
+   * @return the result
+   * @throws InterruptedException if the current thread was interrupted while waiting
+   * @throws ExecutionException if the result was completed exceptionally
+   * @throws CancellationException if the result was cancelled
+   */
+  public LongResult<E> await() throws InterruptedException, ExecutionException {
+    if (result != null) {
+      return result;
+    }
+    return promise.toCompletableFuture().get();
+  }
+
+  LongResult<E> getBlocking() {
+    if (result != null) {
+      return result;
+    }
+    return promise.join();
+  }
+
+  void whenComplete(@NonNull final BiConsumer<? super LongResult<E>, ? super Throwable> action) {
+    if (result != null) {
+      action.accept(result, null);
+      return;
+    }
+    promise.subscribe(action);
+  }
+
+  // result of the function applied to the result of this one, cancelling it cancels this one:
+  @NonNull
+  private <R> Promise<R> applyImpl(@NonNull final Function<LongResult<E>, R> function) {
+    final Promise<R> derived = new Promise<>();
+    promise.subscribe((res, throwable) -> {
+      if (throwable != null) {
+        derived.fail(CompletionResult.wrapException(throwable));
+        return;
+      }
+      try {
+        derived.complete(function.apply(res));
+      } catch (final Throwable mappingThrowable) {
+        derived.fail(CompletionResult.wrapException(mappingThrowable));
+      }
+    });
+    cancelledWith(derived);
+    return derived;
+  }
+
+  @NonNull
+  private CompletionLongResult<E> onResult(@NonNull final Consumer<LongResult<E>> consumer) {
+    if (result != null) {
+      try {
+        consumer.accept(result);
+      } catch (final Throwable consumerThrowable) {
+        return forPromise(failed(consumerThrowable));
+      }
+      return this;
+    }
+    return forPromise(applyImpl(res -> {
+      consumer.accept(res);
+      return res;
+    }));
+  }
+
+  @SuppressWarnings("unchecked")
+  @NonNull
+  private static <E extends Enum<E>, F extends Enum<F>> LongResult<F> mapError(@NonNull final LongResult<E> result,
+                                                                               @NonNull final Function<E, F> errorMapping) {
+    return result.isValue() ? (LongResult<F>) (LongResult<?>) result : LongResult.forError(errorMapping.apply(result.error()));
+  }
+
+  @NonNull
+  private static <T> Promise<T> failed(@NonNull final Throwable throwable) {
+    final Promise<T> future = new Promise<>();
+    future.fail(CompletionResult.wrapException(throwable));
+    return future;
+  }
+}
@@ -33,12 +33,29 @@ package io.github.theindifferent.completionresult;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -48,6 +65,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * <p>It is semantically similar to {@code CompletionStage<Either<V, E>}, but allows mapping of values and errors
  * without the need to unwrap or dereference stages.
  *
+ * <p>Consecutive synchronous mappings of a pending result are fused into one chain, their functions are applied
+ * in one callback when the source of the chain completes. A result mapped more than once starts a new chain
+ * for every further mapping, so that each function is applied exactly once.
+ *
  * @param <V> the class of the value
  * @param <E> the enum class of the error
  *
@@ -57,18 +78,97 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  */
 public class CompletionResult<V, E extends Enum<E>> {
 
+  // completed error results are immutable, one instance per constant is shared:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final EnumTable<CompletionResult<?, ?>> COMPLETED_ERRORS =
+      new EnumTable<>(error -> new CompletionResult(Result.forError((Enum) error), null));
+
+  // same default as the one of CompletableFuture:
+  static final Executor ASYNC_EXECUTOR = ForkJoinPool.getCommonPoolParallelism() > 1
+                                                 ? ForkJoinPool.commonPool()
+                                                 : runnable -> new Thread(runnable).start();
+
+  private static final Executor VIRTUAL_THREAD_EXECUTOR = VirtualThreads.executor() != null
+                                                          ? VirtualThreads.executor()
+                                                          : ASYNC_EXECUTOR;
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<CompletionResult, Promise> PROMISE =
+      AtomicReferenceFieldUpdater.newUpdater(CompletionResult.class, Promise.class, "promise");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<CompletionResult, Dependents> STAGE_DEPENDENTS =
+      AtomicReferenceFieldUpdater.newUpdater(CompletionResult.class, Dependents.class, "stageDependents");
+
+  // completed results hold the result directly and only create a stage when it is requested, results of foreign
+  // stages hold the stage, and results of operators hold a promise; results of synchronous mappings hold their
+  // stage of a fused chain instead, and create the promise when they are used:
+  @Nullable
+  private final Result<V, E> result;
+  @Nullable
   private final CompletionStage<Result<V, E>> stage;
+  @Nullable
+  private volatile Promise<Result<V, E>> promise;
+  @Nullable
+  private final FusedStage<V, E> fused;
+  // both null unless a deadline was set, the error can be null if it could not be carried over to a new error type:
+  @Nullable
+  private final Deadline deadline;
+  @Nullable
+  private final DeadlineError<E> deadlineError;
+  // dependents of a foreign stage, promises and fused stages count their own dependents:
+  @Nullable
+  private volatile Dependents stageDependents;
 
-  private CompletionResult(final CompletionStage<Result<V, E>> stage) {
-    this.stage = requireNonNull(stage);
+  private CompletionResult(@Nullable final Result<V, E> result,
+                           @Nullable final CompletionStage<Result<V, E>> stage) {
+    this(result, stage, null, null, null, null);
+  }
+
+  private CompletionResult(@NonNull final Promise<Result<V, E>> promise) {
+    this(null, null, promise, null, null, null);
+  }
+
+  private CompletionResult(@NonNull final FusedStage<V, E> fused) {
+    this(null, null, null, fused, null, null);
+  }
+
+  private CompletionResult(@Nullable final Result<V, E> result,
+                           @Nullable final CompletionStage<Result<V, E>> stage,
+                           @Nullable final Promise<Result<V, E>> promise,
+                           @Nullable final FusedStage<V, E> fused,
+                           @Nullable final Deadline deadline,
+                           @Nullable final DeadlineError<E> deadlineError) {
+    this.result = result;
+    this.stage = stage;
+    this.promise = promise;
+    this.fused = fused;
+    this.deadline = deadline;
+    this.deadlineError = deadlineError;
   }
 
   public static <V, E extends Enum<E>> CompletionResult<V, E> forStageResult(final CompletionStage<Result<V, E>> stage) {
-    return new CompletionResult<>(stage);
+    requireNonNull(stage);
+    if (stage instanceof CompletableFuture) {
+      final CompletableFuture<Result<V, E>> future = (CompletableFuture<Result<V, E>>) stage;
+      if (future.isDone() && !future.isCompletedExceptionally()) {
+        final Result<V, E> completed = future.join();
+        if (completed != null) {
+          return new CompletionResult<>(completed, null);
+        }
+      }
+    }
+    return new CompletionResult<>(null, stage);
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<V, E> forPromise(@NonNull final Promise<Result<V, E>> promise) {
+    return new CompletionResult<>(promise);
   }
 
   public static <V, E extends Enum<E>> CompletionResult<V, E> forResult(final Result<V, E> result) {
-    return forStageResult(CompletableFuture.completedFuture(result));
+    if (result == null) {
+      return new CompletionResult<>(null, CompletableFuture.completedFuture(null));
+    }
+    return new CompletionResult<>(result, null);
   }
 
   public static <V, E extends Enum<E>> CompletionResult<V, E> forValue(final V value) {
@@ -76,96 +176,797 @@ public class CompletionResult<V, E extends Enum<E>> {
     return forResult(result);
   }
 
+  @SuppressWarnings("unchecked")
   public static <V, E extends Enum<E>> CompletionResult<V, E> forError(final E error) {
-    final Result<V, E> result = Result.forError(error);
-    return forResult(result);
+    requireNonNull(error);
+    return (CompletionResult<V, E>) COMPLETED_ERRORS.get(error);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} completed with the result of the supplier, invoked on a new virtual thread.
+   *
+   * <p>The supplier is free to block, blocking calls park the virtual thread without occupying a carrier or
+   * a pool thread. Java versions without virtual threads invoke the supplier on the default executor of
+   * the async operators instead.
+   *
+   * @param supplier supplier of the result
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result of the supplier
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> supplyOnVirtualThread(final Supplier<Result<V, E>> supplier) {
+    requireNonNull(supplier);
+    return new CompletionResult<>(null, CompletableFuture.supplyAsync(supplier, VIRTUAL_THREAD_EXECUTOR));
+  }
+
+  /**
+   * Returns a {@code CompletionResult} with the values of all the specified results, in the same order,
+   * or with the first error of them.
+   *
+   * <p>The returned result is completed as soon as any of the specified results has an error.
+   *
+   * @param results results to combine
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the list of values or the first error
+   */
+  public static <V, E extends Enum<E>> CompletionResult<List<V>, E> allValues(final Collection<CompletionResult<V, E>> results) {
+    requireNonNull(results);
+    return Combinators.allValues(results);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} with the first value of the specified results.
+   *
+   * <p>The returned result is completed as soon as any of the specified results has a value. If none has,
+   * it is completed once all results are available, with the error of the first result in the iteration
+   * order of the collection; {@link #partition(Collection, Class)} reports all the errors instead.
+   *
+   * @param results results to choose the value from, at least one
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result holding the first value or an error
+   * @throws IllegalArgumentException if there are no results
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> firstValue(final Collection<CompletionResult<V, E>> results) {
+    requireNonNull(results);
+    return Combinators.firstValue(results);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} with the values and the error counts of all the specified results.
+   *
+   * @param results results to partition
+   * @param errorType the enum class of the error
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the partition, never an error
+   */
+  public static <V, E extends Enum<E>> CompletionResult<Partition<V, E>, E> partition(final Collection<CompletionResult<V, E>> results,
+                                                                                      final Class<E> errorType) {
+    requireNonNull(results);
+    requireNonNull(errorType);
+    return Combinators.partition(results, errorType);
+  }
+
+  /**
+   * Maps every input to a {@code CompletionResult}, with at most {@code maxConcurrency} of them in flight,
+   * and returns the values in the order of the inputs.
+   *
+   * <p>The returned result is completed with the first error, no more inputs are mapped after it and the results
+   * still in flight are cancelled, unless other results were derived from them.
+   *
+   * @param inputs inputs to map, iterated lazily
+   * @param mapping mapping of an input to the result
+   * @param maxConcurrency the maximum number of results in flight
+   * @param <A> the class of the inputs
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the list of values or the first error
+   * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, V, E extends Enum<E>> CompletionResult<List<V>, E> traverse(final Iterable<A> inputs,
+                                                                                final Function<A, CompletionResult<V, E>> mapping,
+                                                                                final int maxConcurrency) {
+    requireNonNull(inputs);
+    requireNonNull(mapping);
+    final CompletionResult<?, E> traversal = Traversal.traverse(inputs, mapping, maxConcurrency, true, true);
+    return (CompletionResult<List<V>, E>) traversal;
+  }
+
+  /**
+   * Same as {@link #traverse(Iterable, Function, int)}, but the values are in the order of completion.
+   *
+   * @param inputs inputs to map, iterated lazily
+   * @param mapping mapping of an input to the result
+   * @param maxConcurrency the maximum number of results in flight
+   * @param <A> the class of the inputs
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the list of values or the first error
+   * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, V, E extends Enum<E>> CompletionResult<List<V>, E> traverseUnordered(final Iterable<A> inputs,
+                                                                                         final Function<A, CompletionResult<V, E>> mapping,
+                                                                                         final int maxConcurrency) {
+    requireNonNull(inputs);
+    requireNonNull(mapping);
+    final CompletionResult<?, E> traversal = Traversal.traverse(inputs, mapping, maxConcurrency, false, true);
+    return (CompletionResult<List<V>, E>) traversal;
+  }
+
+  /**
+   * Maps every input to a {@code CompletionResult}, with at most {@code maxConcurrency} of them in flight,
+   * and returns all the results, values and errors, in the order of the inputs.
+   *
+   * @param inputs inputs to map, iterated lazily
+   * @param mapping mapping of an input to the result
+   * @param maxConcurrency the maximum number of results in flight
+   * @param <A> the class of the inputs
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the list of results, never an error
+   * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, V, E extends Enum<E>> CompletionResult<List<Result<V, E>>, E> traverseAll(
+      final Iterable<A> inputs,
+      final Function<A, CompletionResult<V, E>> mapping,
+      final int maxConcurrency) {
+    requireNonNull(inputs);
+    requireNonNull(mapping);
+    final CompletionResult<?, E> traversal = Traversal.traverse(inputs, mapping, maxConcurrency, true, false);
+    return (CompletionResult<List<Result<V, E>>, E>) traversal;
+  }
+
+  /**
+   * Same as {@link #traverseAll(Iterable, Function, int)}, but the results are in the order of completion.
+   *
+   * @param inputs inputs to map, iterated lazily
+   * @param mapping mapping of an input to the result
+   * @param maxConcurrency the maximum number of results in flight
+   * @param <A> the class of the inputs
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return result holding the list of results, never an error
+   * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, V, E extends Enum<E>> CompletionResult<List<Result<V, E>>, E> traverseAllUnordered(
+      final Iterable<A> inputs,
+      final Function<A, CompletionResult<V, E>> mapping,
+      final int maxConcurrency) {
+    requireNonNull(inputs);
+    requireNonNull(mapping);
+    final CompletionResult<?, E> traversal = Traversal.traverse(inputs, mapping, maxConcurrency, false, false);
+    return (CompletionResult<List<Result<V, E>>, E>) traversal;
+  }
+
+  /**
+   * Returns a {@code CompletionResult} of the supplier, invoked again with a delay as long as it returns
+   * a retryable error and the policy allows another attempt.
+   *
+   * <p>The delays are scheduled on the timer of the policy, no thread is blocked while waiting. Once
+   * the attempts or the retry budget are exhausted, the result completes with the last error. Exceptions
+   * are not retried.
+   *
+   * @param supplier supplier of the result, invoked once per attempt
+   * @param retryable errors to retry on
+   * @param policy the policy of the retries
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result of the last attempt
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> retryOnError(final Supplier<CompletionResult<V, E>> supplier,
+                                                                           final Set<E> retryable,
+                                                                           final RetryPolicy policy) {
+    requireNonNull(supplier);
+    requireNonNull(retryable);
+    requireNonNull(policy);
+    // EnumSet.copyOf() needs at least one element to find the enum class of other collections:
+    final Set<E> lookup = retryable.isEmpty() ? Collections.emptySet() : EnumSet.copyOf(retryable);
+    return Retry.retry(supplier, lookup, policy);
+  }
+
+  /**
+   * Same as {@link #hedged(Supplier, Set, HedgePolicy)} with a fixed delay, without hedging errors.
+   *
+   * @param supplier supplier of the result, invoked once per attempt
+   * @param hedgeDelay the delay before each additional attempt
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result of the first attempt to complete
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> hedged(final Supplier<CompletionResult<V, E>> supplier,
+                                                                     final Duration hedgeDelay,
+                                                                     final int maxAttempts) {
+    return hedged(supplier, Collections.emptySet(), HedgePolicy.fixedDelay(hedgeDelay, maxAttempts));
+  }
+
+  /**
+   * Returns a {@code CompletionResult} of the supplier, invoked again whenever the delay of the policy passes
+   * without a result, up to the maximum number of attempts.
+   *
+   * <p>The result completes with the first value of the attempts, and the others are cancelled. Errors that
+   * are not hedgeable, like "not found", and exceptions complete the result as well; a hedgeable error
+   * starts the next attempt right away, and the last one of them is the result once all attempts failed.
+   *
+   * @param supplier supplier of the result, invoked once per attempt
+   * @param hedgeable errors to start another attempt on instead of completing with them
+   * @param policy the policy of the attempts
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result of the first attempt to complete with a value or a not hedgeable error
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> hedged(final Supplier<CompletionResult<V, E>> supplier,
+                                                                     final Set<E> hedgeable,
+                                                                     final HedgePolicy policy) {
+    requireNonNull(supplier);
+    requireNonNull(hedgeable);
+    requireNonNull(policy);
+    final Set<E> lookup = hedgeable.isEmpty() ? Collections.emptySet() : EnumSet.copyOf(hedgeable);
+    return Hedge.hedge(supplier, lookup, policy);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} of the step applied to the initial value, then to the value of every
+   * step, until the predicate matches the value or a step returns an error.
+   *
+   * <p>Only the step in flight is held, and steps completing synchronously do not grow the stack, which makes
+   * it suitable for loops of unbounded length, such as pagination through a cursor.
+   *
+   * @param initial the initial value, not {@code null}
+   * @param step step mapping a value to the result of the next one
+   * @param until predicate of the value to complete with
+   * @param <V> the class of the value
+   * @param <E> the enum class of the error
+   * @return result holding the first value matching the predicate, or the first error
+   */
+  public static <V, E extends Enum<E>> CompletionResult<V, E> iterateUntil(final V initial,
+                                                                           final Function<V, CompletionResult<V, E>> step,
+                                                                           final Predicate<V> until) {
+    requireNonNull(initial);
+    requireNonNull(step);
+    requireNonNull(until);
+    return Iteration.iterate(initial, step, until);
   }
 
   public CompletionResult<V, E> onException(Consumer<Throwable> consumer) {
-    return new CompletionResult<>(
-        stage.handle((res, t) -> {
-          if (t != null) {
-            consumer.accept(t);
-            if (t instanceof CancellationException) {
-              throw (CancellationException) t;
-            }
-            if (t instanceof CompletionException) {
-              throw (CompletionException) t;
-            }
-            throw new CompletionException(t);
-          }
-          return res;
-        }));
+    if (result != null) {
+      // completed normally, nothing to report:
+      return this;
+    }
+    final Promise<Result<V, E>> derived = new Promise<>();
+    whenComplete((res, t) -> {
+      if (t == null) {
+        derived.complete(res);
+        return;
+      }
+      try {
+        consumer.accept(t);
+      } catch (final Throwable consumerThrowable) {
+        derived.fail(wrapException(consumerThrowable));
+        return;
+      }
+      derived.fail(t instanceof CancellationException ? t : wrapException(t));
+    });
+    return carryDeadline(dependent(derived), deadlineError);
   }
 
   public CompletionResult<V, E> onResultValue(final Consumer<V> valueConsumer) {
-    return new CompletionResult<>(
-        stage.thenApply(result -> {
-          if (result.isValue()) {
-            valueConsumer.accept(result.value());
-          }
-          return result;
-        }));
+    if (result != null) {
+      if (result.isValue()) {
+        try {
+          valueConsumer.accept(result.value());
+        } catch (final Throwable consumerThrowable) {
+          return forApplyException(consumerThrowable);
+        }
+      }
+      return this;
+    }
+    final Consumer<V> propagating = ContextPropagation.wrapConsumer(valueConsumer);
+    return carryDeadline(applyImpl(res -> acceptValue(res, propagating), null), deadlineError);
+  }
+
+  public CompletionResult<V, E> onResultValueAsync(final Consumer<V> valueConsumer) {
+    return onResultValueAsync(valueConsumer, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #onResultValue(Consumer)}, but the consumer is invoked by the specified executor.
+   *
+   * @param valueConsumer consumer of the value
+   * @param executor executor to invoke the consumer
+   * @return result completed after the consumer was invoked
+   */
+  public CompletionResult<V, E> onResultValueAsync(final Consumer<V> valueConsumer, final Executor executor) {
+    requireNonNull(valueConsumer);
+    requireNonNull(executor);
+    if (result != null && result.isError()) {
+      return this;
+    }
+    final Consumer<V> propagating = ContextPropagation.wrapConsumer(valueConsumer);
+    return carryDeadline(applyImpl(res -> acceptValue(res, propagating), executor), deadlineError);
   }
 
   public CompletionResult<V, E> onResultError(final Consumer<E> errorConsumer) {
-    return new CompletionResult<>(
-        stage.thenApply(result -> {
-          if (result.isError()) {
-            errorConsumer.accept(result.error());
-          }
-          return result;
-        }));
+    if (result != null) {
+      if (result.isError()) {
+        try {
+          errorConsumer.accept(result.error());
+        } catch (final Throwable consumerThrowable) {
+          return forApplyException(consumerThrowable);
+        }
+      }
+      return this;
+    }
+    final Consumer<E> propagating = ContextPropagation.wrapConsumer(errorConsumer);
+    return carryDeadline(applyImpl(res -> acceptError(res, propagating), null), deadlineError);
+  }
+
+  public CompletionResult<V, E> onResultErrorAsync(final Consumer<E> errorConsumer) {
+    return onResultErrorAsync(errorConsumer, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #onResultError(Consumer)}, but the consumer is invoked by the specified executor.
+   *
+   * @param errorConsumer consumer of the error
+   * @param executor executor to invoke the consumer
+   * @return result completed after the consumer was invoked
+   */
+  public CompletionResult<V, E> onResultErrorAsync(final Consumer<E> errorConsumer, final Executor executor) {
+    requireNonNull(errorConsumer);
+    requireNonNull(executor);
+    if (result != null && result.isValue()) {
+      return this;
+    }
+    final Consumer<E> propagating = ContextPropagation.wrapConsumer(errorConsumer);
+    return carryDeadline(applyImpl(res -> acceptError(res, propagating), executor), deadlineError);
   }
 
   @SuppressWarnings("unchecked")
   public <T> CompletionResult<T, E> thenApplyValue(final Function<V, T> valueMapping) {
     requireNonNull(valueMapping);
-    return new CompletionResult<>(
-        stage.thenApply(res -> {
-          if (res.isValue()) {
-            return Result.forValue(valueMapping.apply(res.value()));
-          }
-          return (Result<T, E>) res;
-        }));
+    if (result != null) {
+      if (result.isValue()) {
+        try {
+          return carryDeadline(forValue(valueMapping.apply(result.value())), deadlineError);
+        } catch (final Throwable mappingThrowable) {
+          return forApplyException(mappingThrowable);
+        }
+      }
+      return (CompletionResult<T, E>) this;
+    }
+    final Function<V, T> propagating = ContextPropagation.wrapFunction(valueMapping);
+    return carryDeadline(applyImpl(res -> applyValue(res, propagating), null), deadlineError);
+  }
+
+  public <T> CompletionResult<T, E> thenApplyValueAsync(final Function<V, T> valueMapping) {
+    return thenApplyValueAsync(valueMapping, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #thenApplyValue(Function)}, but the mapping is invoked by the specified executor.
+   *
+   * @param valueMapping mapping of the value
+   * @param executor executor to invoke the mapping
+   * @param <T> the class of the mapped value
+   * @return result of the mapping
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletionResult<T, E> thenApplyValueAsync(final Function<V, T> valueMapping, final Executor executor) {
+    requireNonNull(valueMapping);
+    requireNonNull(executor);
+    if (result != null && result.isError()) {
+      return (CompletionResult<T, E>) this;
+    }
+    final Function<V, T> propagating = ContextPropagation.wrapFunction(valueMapping);
+    return carryDeadline(applyImpl(res -> applyValue(res, propagating), executor), deadlineError);
   }
 
+  @SuppressWarnings("unchecked")
   public <T> CompletionResult<T, E> thenComposeValue(final Function<V, CompletionResult<T, E>> valueMapping) {
     requireNonNull(valueMapping);
-    final CompletableFuture<Result<T, E>> future = new CompletableFuture<>();
-    stage.whenComplete((res, throwable) -> composeValueImpl(future, valueMapping, res, throwable));
-    return new CompletionResult<>(future);
+    if (result != null) {
+      if (result.isError()) {
+        return (CompletionResult<T, E>) this;
+      }
+      if (isDeadlineExpired()) {
+        try {
+          return carryDeadline(forError(deadlineError.get()), deadlineError);
+        } catch (final Throwable mappingThrowable) {
+          return forApplyException(mappingThrowable);
+        }
+      }
+      final Promise.Trampoline trampoline = Promise.Trampoline.current();
+      if (!trampoline.enter()) {
+        final Promise<Result<T, E>> future = new Promise<>();
+        trampoline.defer(() -> composeValueImpl(future, valueMapping, valueMapping, result, null));
+        return carryDeadline(new CompletionResult<>(future), deadlineError);
+      }
+      try {
+        return carryDeadline(requireNonNull(valueMapping.apply(result.value())), deadlineError);
+      } catch (final Throwable mappingThrowable) {
+        return forComposeException(mappingThrowable);
+      } finally {
+        trampoline.exit();
+      }
+    }
+    final Promise<Result<T, E>> future = new Promise<>();
+    final Function<V, CompletionResult<T, E>> propagating = ContextPropagation.wrapFunction(valueMapping);
+    whenComplete((res, throwable) -> composeValueImpl(future, propagating, valueMapping, res, throwable));
+    return carryDeadline(dependent(future), deadlineError);
+  }
+
+  /**
+   * Same as {@link #thenComposeValue(Function)}, but the mapping also receives the deadline of this result,
+   * to pass the remaining time on to the downstream call.
+   *
+   * @param valueMapping mapping of the value and the deadline
+   * @param <T> the class of the mapped value
+   * @return result of the mapping
+   * @see #withDeadline(Deadline, Enum)
+   */
+  public <T> CompletionResult<T, E> thenComposeValueWithDeadline(final BiFunction<V, Deadline, CompletionResult<T, E>> valueMapping) {
+    requireNonNull(valueMapping);
+    final Deadline current = deadline();
+    return thenComposeValue(value -> valueMapping.apply(value, current));
+  }
+
+  public <T> CompletionResult<T, E> thenComposeValueAsync(final Function<V, CompletionResult<T, E>> valueMapping) {
+    return thenComposeValueAsync(valueMapping, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #thenComposeValue(Function)}, but the mapping is invoked by the specified executor.
+   *
+   * @param valueMapping mapping of the value
+   * @param executor executor to invoke the mapping
+   * @param <T> the class of the mapped value
+   * @return result of the mapping
+   */
+  @SuppressWarnings("unchecked")
+  public <T> CompletionResult<T, E> thenComposeValueAsync(final Function<V, CompletionResult<T, E>> valueMapping,
+                                                          final Executor executor) {
+    requireNonNull(valueMapping);
+    requireNonNull(executor);
+    if (result != null && result.isError()) {
+      return (CompletionResult<T, E>) this;
+    }
+    final Promise<Result<T, E>> future = new Promise<>();
+    final Function<V, CompletionResult<T, E>> propagating = ContextPropagation.wrapFunction(valueMapping);
+    whenComplete((res, throwable) -> execute(executor, future, () -> composeValueImpl(future, propagating, valueMapping, res, throwable)));
+    return carryDeadline(dependent(future), deadlineError);
+  }
+
+  /**
+   * Returns a {@code CompletionLongResult} holding the value mapped to a {@code long}, or the error of this result,
+   * so that the following operators do not box the value.
+   *
+   * @param valueMapping mapping of the value
+   * @return result of the mapping
+   */
+  public CompletionLongResult<E> thenApplyAsLong(final ToLongFunction<V> valueMapping) {
+    requireNonNull(valueMapping);
+    if (result != null) {
+      try {
+        return CompletionLongResult.forLongResult(applyAsLong(result, valueMapping));
+      } catch (final Throwable mappingThrowable) {
+        return CompletionLongResult.forException(mappingThrowable);
+      }
+    }
+    final Promise<LongResult<E>> derived = new Promise<>();
+    whenComplete((res, throwable) -> {
+      if (throwable != null) {
+        derived.fail(wrapException(throwable));
+        return;
+      }
+      try {
+        derived.complete(applyAsLong(requireNonNull(res, "Stage was completed with null result"), valueMapping));
+      } catch (final Throwable mappingThrowable) {
+        derived.fail(wrapException(mappingThrowable));
+      }
+    });
+    cancelledWith(derived);
+    return CompletionLongResult.forPromise(derived);
+  }
+
+  @NonNull
+  private static <V, E extends Enum<E>> LongResult<E> applyAsLong(@NonNull final Result<V, E> res,
+                                                                  @NonNull final ToLongFunction<V> valueMapping) {
+    return res.isValue() ? LongResult.forValue(valueMapping.applyAsLong(res.value())) : LongResult.forError(res.error());
   }
 
   @SuppressWarnings("unchecked")
   public <F extends Enum<F>> CompletionResult<V, F> thenApplyError(final Function<E, F> errorMapping) {
     requireNonNull(errorMapping);
-    return new CompletionResult<>(
-        stage.thenApply(res -> {
-          if (res.isError()) {
-            return Result.forError(errorMapping.apply(res.error()));
-          }
-          return (Result<V, F>) res;
-        }));
+    if (result != null) {
+      if (result.isError()) {
+        try {
+          return carryDeadline(forError(errorMapping.apply(result.error())), mapDeadlineError(errorMapping));
+        } catch (final Throwable mappingThrowable) {
+          return forApplyException(mappingThrowable);
+        }
+      }
+      return withErrorType(mapDeadlineError(errorMapping));
+    }
+    final Function<E, F> propagating = ContextPropagation.wrapFunction(errorMapping);
+    return carryDeadline(applyImpl(res -> applyError(res, propagating), null), mapDeadlineError(errorMapping));
   }
 
+  public <F extends Enum<F>> CompletionResult<V, F> thenApplyErrorAsync(final Function<E, F> errorMapping) {
+    return thenApplyErrorAsync(errorMapping, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #thenApplyError(Function)}, but the mapping is invoked by the specified executor.
+   *
+   * @param errorMapping mapping of the error
+   * @param executor executor to invoke the mapping
+   * @param <F> the enum class of the mapped error
+   * @return result of the mapping
+   */
+  @SuppressWarnings("unchecked")
+  public <F extends Enum<F>> CompletionResult<V, F> thenApplyErrorAsync(final Function<E, F> errorMapping,
+                                                                        final Executor executor) {
+    requireNonNull(errorMapping);
+    requireNonNull(executor);
+    if (result != null && result.isValue()) {
+      return withErrorType(mapDeadlineError(errorMapping));
+    }
+    final Function<E, F> propagating = ContextPropagation.wrapFunction(errorMapping);
+    return carryDeadline(applyImpl(res -> applyError(res, propagating), executor), mapDeadlineError(errorMapping));
+  }
+
+  @SuppressWarnings("unchecked")
   public <F extends Enum<F>> CompletionResult<V, F> thenComposeError(final Function<E, CompletionResult<V, F>> errorMapping) {
     requireNonNull(errorMapping);
-    final CompletableFuture<Result<V, F>> future = new CompletableFuture<>();
-    stage.whenComplete((res, throwable) -> composeErrorImpl(future, errorMapping, res, throwable));
-    return new CompletionResult<>(future);
+    if (result != null) {
+      if (result.isValue()) {
+        return withErrorType(null);
+      }
+      final Promise.Trampoline trampoline = Promise.Trampoline.current();
+      if (!trampoline.enter()) {
+        final Promise<Result<V, F>> future = new Promise<>();
+        trampoline.defer(() -> composeErrorImpl(future, errorMapping, errorMapping, result, null));
+        return carryDeadline(new CompletionResult<>(future), null);
+      }
+      try {
+        return carryDeadline(requireNonNull(errorMapping.apply(result.error())), null);
+      } catch (final Throwable mappingThrowable) {
+        return forComposeException(mappingThrowable);
+      } finally {
+        trampoline.exit();
+      }
+    }
+    final Promise<Result<V, F>> future = new Promise<>();
+    final Function<E, CompletionResult<V, F>> propagating = ContextPropagation.wrapFunction(errorMapping);
+    whenComplete((res, throwable) -> composeErrorImpl(future, propagating, errorMapping, res, throwable));
+    return carryDeadline(dependent(future), null);
+  }
+
+  public <F extends Enum<F>> CompletionResult<V, F> thenComposeErrorAsync(final Function<E, CompletionResult<V, F>> errorMapping) {
+    return thenComposeErrorAsync(errorMapping, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #thenComposeError(Function)}, but the mapping is invoked by the specified executor.
+   *
+   * @param errorMapping mapping of the error
+   * @param executor executor to invoke the mapping
+   * @param <F> the enum class of the mapped error
+   * @return result of the mapping
+   */
+  @SuppressWarnings("unchecked")
+  public <F extends Enum<F>> CompletionResult<V, F> thenComposeErrorAsync(final Function<E, CompletionResult<V, F>> errorMapping,
+                                                                          final Executor executor) {
+    requireNonNull(errorMapping);
+    requireNonNull(executor);
+    if (result != null && result.isValue()) {
+      return withErrorType(null);
+    }
+    final Promise<Result<V, F>> future = new Promise<>();
+    final Function<E, CompletionResult<V, F>> propagating = ContextPropagation.wrapFunction(errorMapping);
+    whenComplete((res, throwable) -> execute(executor, future, () -> composeErrorImpl(future, propagating, errorMapping, res, throwable)));
+    return carryDeadline(dependent(future), null);
   }
 
   public <T, F extends Enum<F>> CompletionResult<T, F> thenCompose(final Function<Result<V, E>, CompletionResult<T, F>> mapping) {
     requireNonNull(mapping);
-    final CompletableFuture<Result<T, F>> future = new CompletableFuture<>();
-    stage.whenComplete((res, throwable) -> composeImpl(future, mapping, res, throwable));
-    return new CompletionResult<>(future);
+    if (result != null) {
+      final Promise.Trampoline trampoline = Promise.Trampoline.current();
+      if (!trampoline.enter()) {
+        final Promise<Result<T, F>> future = new Promise<>();
+        trampoline.defer(() -> composeImpl(future, mapping, mapping, result, null));
+        return carryDeadline(new CompletionResult<>(future), null);
+      }
+      try {
+        return carryDeadline(requireNonNull(mapping.apply(result)), null);
+      } catch (final Throwable mappingThrowable) {
+        return forComposeException(mappingThrowable);
+      } finally {
+        trampoline.exit();
+      }
+    }
+    final Promise<Result<T, F>> future = new Promise<>();
+    final Function<Result<V, E>, CompletionResult<T, F>> propagating = ContextPropagation.wrapFunction(mapping);
+    whenComplete((res, throwable) -> composeImpl(future, propagating, mapping, res, throwable));
+    return carryDeadline(dependent(future), null);
+  }
+
+  public <T, F extends Enum<F>> CompletionResult<T, F> thenComposeAsync(final Function<Result<V, E>, CompletionResult<T, F>> mapping) {
+    return thenComposeAsync(mapping, ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Same as {@link #thenCompose(Function)}, but the mapping is invoked by the specified executor.
+   *
+   * @param mapping mapping of the result
+   * @param executor executor to invoke the mapping
+   * @param <T> the class of the mapped value
+   * @param <F> the enum class of the mapped error
+   * @return result of the mapping
+   */
+  public <T, F extends Enum<F>> CompletionResult<T, F> thenComposeAsync(final Function<Result<V, E>, CompletionResult<T, F>> mapping,
+                                                                        final Executor executor) {
+    requireNonNull(mapping);
+    requireNonNull(executor);
+    final Promise<Result<T, F>> future = new Promise<>();
+    final Function<Result<V, E>, CompletionResult<T, F>> propagating = ContextPropagation.wrapFunction(mapping);
+    whenComplete((res, throwable) -> execute(executor, future, () -> composeImpl(future, propagating, mapping, res, throwable)));
+    return carryDeadline(dependent(future), null);
+  }
+
+  public CompletionResult<V, E> completeOnTimeout(final E timeoutError, final Duration timeout) {
+    return completeOnTimeout(timeoutError, timeout, Timer.shared());
+  }
+
+  /**
+   * Returns a {@code CompletionResult} completed with the specified error if this one does not complete
+   * within the timeout. The operation behind this result keeps running.
+   *
+   * @param timeoutError error to complete with on timeout
+   * @param timeout the timeout
+   * @param timer timer to schedule the timeout on
+   * @return result completed with this result or with the error on timeout
+   */
+  public CompletionResult<V, E> completeOnTimeout(final E timeoutError, final Duration timeout, final Timer timer) {
+    return timeoutImpl(timeoutError, timeout, timer, false);
+  }
+
+  public CompletionResult<V, E> orTimeoutError(final E timeoutError, final Duration timeout) {
+    return orTimeoutError(timeoutError, timeout, Timer.shared());
+  }
+
+  /**
+   * Returns a {@code CompletionResult} completed with the specified error if this one does not complete
+   * within the timeout, in which case the stage of this result is cancelled.
+   *
+   * @param timeoutError error to complete with on timeout
+   * @param timeout the timeout
+   * @param timer timer to schedule the timeout on
+   * @return result completed with this result or with the error on timeout
+   */
+  public CompletionResult<V, E> orTimeoutError(final E timeoutError, final Duration timeout, final Timer timer) {
+    return timeoutImpl(timeoutError, timeout, timer, true);
+  }
+
+  /**
+   * Records a Java Flight Recorder event when this result completes, with the step name, the outcome and the
+   * time from this call, if the {@code io.github.theindifferent.completionresult.Stage} event is enabled and
+   * the time exceeds its threshold. Compose operators record their hops as
+   * {@code io.github.theindifferent.completionresult.Compose} events, named after the class of the mapping.
+   * The result is not changed, this one is returned.
+   *
+   * <p>Events are only recorded on Java 11 and newer, and cost a check of a static flag when they are disabled.
+   *
+   * @param step name of the step behind the result
+   * @return this result
+   */
+  public CompletionResult<V, E> traced(final String step) {
+    requireNonNull(step);
+    final Object stage = FlightEvents.stageStarted(step);
+    if (stage != null) {
+      whenComplete((res, throwable) -> FlightEvents.stageCompleted(stage, res, throwable));
+    }
+    return this;
+  }
+
+  /**
+   * Records the completion latency of this result, measured from this call, and its outcome under the name.
+   * The result is not changed, this one is returned.
+   *
+   * @param name name of the operation behind the result
+   * @param metrics metrics to record into
+   * @return this result
+   */
+  public CompletionResult<V, E> instrument(final String name, final ResultMetrics metrics) {
+    requireNonNull(name);
+    requireNonNull(metrics);
+    final ResultMetrics.Recorder recorder = metrics.recorder(name);
+    final long start = System.nanoTime();
+    whenComplete((res, throwable) -> recorder.record(System.nanoTime() - start, res, throwable));
+    return this;
+  }
+
+  public CompletionResult<V, E> withDeadline(final Deadline deadline, final E deadlineError) {
+    return withDeadline(deadline, deadlineError, Timer.shared());
+  }
+
+  /**
+   * Returns a {@code CompletionResult} bound to the specified deadline, or to the deadline of this result
+   * if it is earlier.
+   *
+   * <p>The deadline is carried along the results derived from the returned one. Once it has passed,
+   * {@code thenComposeValue} operators complete with the deadline error instead of invoking the mapping,
+   * and the returned result itself completes with the error if it is still pending. Operators mapping
+   * the error to another type map the deadline error as well, except for the compose ones, which only
+   * carry the deadline itself. The error mappings are only applied to the deadline error once a compose
+   * operator finds the deadline passed, exceptions of them complete its result exceptionally.
+   *
+   * @param deadline the deadline
+   * @param deadlineError error to complete with once the deadline has passed
+   * @param timer timer to schedule the deadline on
+   * @return result bound to the deadline
+   */
+  public CompletionResult<V, E> withDeadline(final Deadline deadline, final E deadlineError, final Timer timer) {
+    requireNonNull(deadline);
+    requireNonNull(deadlineError);
+    requireNonNull(timer);
+    final Deadline effective = this.deadline == null ? deadline : this.deadline.earliest(deadline);
+    final CompletionResult<V, E> bound = new CompletionResult<>(result, stage, promise, fused, effective, DeadlineError.of(deadlineError));
+    if (result != null || effective == Deadline.none()) {
+      return bound;
+    }
+    return bound.timeoutImpl(deadlineError, effective.remaining(), timer, false);
+  }
+
+  /**
+   * Returns the deadline this result is bound to.
+   *
+   * @return the deadline, {@link Deadline#none()} if there is none
+   * @see #withDeadline(Deadline, Enum)
+   */
+  @NonNull
+  public Deadline deadline() {
+    return deadline == null ? Deadline.none() : deadline;
+  }
+
+  private CompletionResult<V, E> timeoutImpl(@NonNull final E timeoutError,
+                                             @NonNull final Duration timeout,
+                                             @NonNull final Timer timer,
+                                             final boolean cancelOnTimeout) {
+    requireNonNull(timeoutError);
+    requireNonNull(timeout);
+    requireNonNull(timer);
+    if (result != null) {
+      return this;
+    }
+    final Promise<Result<V, E>> future = new Promise<>();
+    final Timer.Timeout scheduled = timer.schedule(() -> {
+      if (future.complete(Result.forError(timeoutError)) && cancelOnTimeout) {
+        cancel();
+      }
+    }, timeout.toNanos(), TimeUnit.NANOSECONDS);
+    whenComplete((res, throwable) -> {
+      scheduled.cancel();
+      if (throwable != null) {
+        composeExceptionImpl(future, throwable);
+      } else {
+        future.complete(res);
+      }
+    });
+    return carryDeadline(dependent(future), deadlineError);
   }
 
   @SuppressWarnings("unchecked")
-  private <T> void composeValueImpl(@NonNull final CompletableFuture<Result<T, E>> future,
+  private <T> void composeValueImpl(@NonNull final Promise<Result<T, E>> future,
                                     @NonNull final Function<V, CompletionResult<T, E>> valueMapping,
+                                    @NonNull final Object origin,
                                     @Nullable final Result<V, E> result,
                                     @Nullable final Throwable throwable) {
     // got exception:
@@ -183,24 +984,33 @@ public class CompletionResult<V, E extends Enum<E>> {
       future.complete((Result<T, E>) result);
       return;
     }
+    // deadline passed while waiting for the value:
+    if (isDeadlineExpired()) {
+      try {
+        future.complete(Result.forError(deadlineError.get()));
+      } catch (final Throwable mappingThrowable) {
+        future.fail(wrapException(mappingThrowable));
+      }
+      return;
+    }
     // result has value:
+    // the event is kept out of the try, so that instrumentation cannot fail the composed result, and names
+    // the mapping as given rather than its context propagating wrapper:
+    final Object hop = FlightEvents.composeStarted(origin);
     try {
-      final CompletionResult<T, E> mapped = valueMapping.apply(result.value());
-      mapped.stage.whenComplete((mappedResult, mappedThrowable) -> {
-        if (mappedResult != null) {
-          future.complete(mappedResult);
-        } else {
-          future.completeExceptionally(mappedThrowable);
-        }
-      });
+      completeWith(future, valueMapping.apply(result.value()));
     } catch (final Throwable mappingThrowable) {
       composeExceptionImpl(future, mappingThrowable);
     }
+    if (hop != null) {
+      future.subscribe((hopResult, hopThrowable) -> FlightEvents.composeCompleted(hop, hopResult, hopThrowable));
+    }
   }
 
   @SuppressWarnings("unchecked")
-  private <F extends Enum<F>> void composeErrorImpl(@NonNull final CompletableFuture<Result<V, F>> future,
+  private <F extends Enum<F>> void composeErrorImpl(@NonNull final Promise<Result<V, F>> future,
                                                     @NonNull final Function<E, CompletionResult<V, F>> errorMapping,
+                                                    @NonNull final Object origin,
                                                     @Nullable final Result<V, E> result,
                                                     @Nullable final Throwable throwable) {
     // got exception:
@@ -219,22 +1029,22 @@ public class CompletionResult<V, E extends Enum<E>> {
       return;
     }
     // result has error:
+    // the event is kept out of the try, so that instrumentation cannot fail the composed result, and names
+    // the mapping as given rather than its context propagating wrapper:
+    final Object hop = FlightEvents.composeStarted(origin);
     try {
-      final CompletionResult<V, F> mapped = errorMapping.apply(result.error());
-      mapped.stage.whenComplete((mappedResult, mappedThrowable) -> {
-        if (mappedResult != null) {
-          future.complete(mappedResult);
-        } else {
-          future.completeExceptionally(mappedThrowable);
-        }
-      });
+      completeWith(future, errorMapping.apply(result.error()));
     } catch (final Throwable mappingThrowable) {
       composeExceptionImpl(future, mappingThrowable);
     }
+    if (hop != null) {
+      future.subscribe((hopResult, hopThrowable) -> FlightEvents.composeCompleted(hop, hopResult, hopThrowable));
+    }
   }
 
-  private <T, F extends Enum<F>> void composeImpl(@NonNull final CompletableFuture<Result<T, F>> future,
+  private <T, F extends Enum<F>> void composeImpl(@NonNull final Promise<Result<T, F>> future,
                                                   @NonNull final Function<Result<V, E>, CompletionResult<T, F>> mapping,
+                                                  @NonNull final Object origin,
                                                   @Nullable final Result<V, E> result,
                                                   @Nullable final Throwable throwable) {
     // got exception:
@@ -248,22 +1058,234 @@ public class CompletionResult<V, E extends Enum<E>> {
       return;
     }
     // throwable is null, result is not null:
+    // the event is kept out of the try, so that instrumentation cannot fail the composed result, and names
+    // the mapping as given rather than its context propagating wrapper:
+    final Object hop = FlightEvents.composeStarted(origin);
     try {
-      final CompletionResult<T, F> mapped = mapping.apply(result);
-      mapped.stage.whenComplete((mappedResult, mappedThrowable) -> {
-        if (mappedResult != null) {
-          future.complete(mappedResult);
-        } else {
-          future.completeExceptionally(mappedThrowable);
-        }
-      });
+      completeWith(future, mapping.apply(result));
     } catch (final Throwable mappingThrowable) {
       composeExceptionImpl(future, mappingThrowable);
     }
+    if (hop != null) {
+      future.subscribe((hopResult, hopThrowable) -> FlightEvents.composeCompleted(hop, hopResult, hopThrowable));
+    }
+  }
+
+  private static <V, E extends Enum<E>> Result<V, E> acceptValue(final Result<V, E> res, final Consumer<V> valueConsumer) {
+    if (res.isValue()) {
+      valueConsumer.accept(res.value());
+    }
+    return res;
+  }
+
+  private static <V, E extends Enum<E>> Result<V, E> acceptError(final Result<V, E> res, final Consumer<E> errorConsumer) {
+    if (res.isError()) {
+      errorConsumer.accept(res.error());
+    }
+    return res;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V, T, E extends Enum<E>> Result<T, E> applyValue(final Result<V, E> res, final Function<V, T> valueMapping) {
+    if (res.isValue()) {
+      return Result.forValue(valueMapping.apply(res.value()));
+    }
+    return (Result<T, E>) res;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V, E extends Enum<E>, F extends Enum<F>> Result<V, F> applyError(final Result<V, E> res,
+                                                                                   final Function<E, F> errorMapping) {
+    if (res.isError()) {
+      return Result.forError(errorMapping.apply(res.error()));
+    }
+    return (Result<V, F>) res;
+  }
+
+  private static <T, F extends Enum<F>> void completeWith(@NonNull final Promise<Result<T, F>> future,
+                                                         @NonNull final CompletionResult<T, F> mapped) {
+    if (mapped.result != null) {
+      future.complete(mapped.result);
+      return;
+    }
+    mapped.cancelledWith(future);
+    mapped.whenComplete((mappedResult, mappedThrowable) -> {
+      if (mappedThrowable != null) {
+        future.fail(mappedThrowable);
+      } else {
+        future.complete(mappedResult);
+      }
+    });
+  }
+
+  // result of the function applied to the result of this one, by the executor if there is one:
+  private <T, F extends Enum<F>> CompletionResult<T, F> applyImpl(@NonNull final Function<Result<V, E>, Result<T, F>> function,
+                                                                  @Nullable final Executor executor) {
+    if (executor == null) {
+      return fuse(function);
+    }
+    final Promise<Result<T, F>> derived = new Promise<>();
+    whenComplete((res, throwable) -> {
+      if (throwable != null) {
+        derived.fail(wrapException(throwable));
+      } else {
+        execute(executor, derived, () -> applyResult(derived, function, res));
+      }
+    });
+    return dependent(derived);
+  }
+
+  // result of the promise completed by a callback of this result, cancelling it cancels this one, see cancelledWith:
+  @NonNull
+  private <T, F extends Enum<F>> CompletionResult<T, F> dependent(@NonNull final Promise<Result<T, F>> future) {
+    cancelledWith(future);
+    return new CompletionResult<>(future);
+  }
+
+  /**
+   * Registers the promise as a dependent of this result, which is cancelled once all its dependents are cancelled.
+   *
+   * @param dependent promise derived from this result
+   */
+  void cancelledWith(@NonNull final Promise<?> dependent) {
+    addDependent();
+    dependent.onCancel(this::releaseDependent);
+  }
+
+  void addDependent() {
+    final Dependents dependents = dependents();
+    if (dependents != null) {
+      dependents.addDependent();
+    }
+  }
+
+  // counts a cancelled dependent, cancelling this result if it was the last one needing it:
+  void releaseDependent() {
+    final Dependents dependents = dependents();
+    if (dependents != null && dependents.releaseDependent()) {
+      cancel();
+    }
+  }
+
+  // counter of the dependents, null for completed results:
+  @Nullable
+  private Dependents dependents() {
+    if (fused != null) {
+      return fused;
+    }
+    final Promise<Result<V, E>> current = promise;
+    if (current != null) {
+      return current;
+    }
+    if (stage == null) {
+      return null;
+    }
+    final Dependents created = new Dependents();
+    return STAGE_DEPENDENTS.compareAndSet(this, null, created) ? created : stageDependents;
+  }
+
+  private <T, F extends Enum<F>> CompletionResult<T, F> fuse(@NonNull final Function<Result<V, E>, Result<T, F>> function) {
+    if (fused != null) {
+      final FusedStage<T, F> extended = fused.extend(function);
+      if (extended != null) {
+        return new CompletionResult<>(extended);
+      }
+    }
+    // first mapping of this result, or a further dependent of a fused one, which waits for its outcome:
+    return new CompletionResult<>(FusedStage.start(this, function));
+  }
+
+  // promise of pending results, null for completed results and foreign stages:
+  @Nullable
+  private Promise<Result<V, E>> pending() {
+    final Promise<Result<V, E>> current = promise;
+    if (current != null || fused == null) {
+      return current;
+    }
+    final Promise<Result<V, E>> observed = fused.observe();
+    return PROMISE.compareAndSet(this, null, observed) ? observed : promise;
+  }
+
+  private static <V, E extends Enum<E>, T, F extends Enum<F>> void applyResult(@NonNull final Promise<Result<T, F>> derived,
+                                                                               @NonNull final Function<Result<V, E>, Result<T, F>> function,
+                                                                               @Nullable final Result<V, E> res) {
+    try {
+      derived.complete(function.apply(res));
+    } catch (final Throwable mappingThrowable) {
+      derived.fail(wrapException(mappingThrowable));
+    }
+  }
+
+  static void execute(@NonNull final Executor executor,
+                      @NonNull final Promise<?> derived,
+                      @NonNull final Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (final Throwable rejected) {
+      derived.fail(wrapException(rejected));
+    }
+  }
+
+  // same as the exception of a failed CompletableFuture.thenApply():
+  @NonNull
+  static Throwable wrapException(@NonNull final Throwable throwable) {
+    return throwable instanceof CompletionException ? throwable : new CompletionException(throwable);
+  }
+
+  private static <V, E extends Enum<E>> CompletionResult<V, E> forApplyException(@NonNull final Throwable throwable) {
+    final Promise<Result<V, E>> future = new Promise<>();
+    future.fail(wrapException(throwable));
+    return new CompletionResult<>(future);
+  }
+
+  private static <V, E extends Enum<E>> CompletionResult<V, E> forComposeException(@NonNull final Throwable throwable) {
+    final Promise<Result<V, E>> future = new Promise<>();
+    composeExceptionImpl(future, throwable);
+    return new CompletionResult<>(future);
+  }
+
+  private boolean isDeadlineExpired() {
+    return deadline != null && deadlineError != null && deadline.isExpired();
+  }
+
+  @Nullable
+  private <F extends Enum<F>> DeadlineError<F> mapDeadlineError(@NonNull final Function<E, F> errorMapping) {
+    return deadlineError == null ? null : deadlineError.map(ContextPropagation.wrapFunction(errorMapping));
+  }
+
+  // same as casting this result, but without carrying the deadline error over to the other type:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private <F extends Enum<F>> CompletionResult<V, F> withErrorType(@Nullable final DeadlineError<F> error) {
+    if (deadline == null) {
+      return (CompletionResult<V, F>) this;
+    }
+    return new CompletionResult<>((Result<V, F>) (Result) result, (CompletionStage) stage, (Promise) promise, (FusedStage) fused,
+                                  deadline, error);
+  }
+
+  // results derived from this one keep its deadline unless they already have an earlier one:
+  private <T, F extends Enum<F>> CompletionResult<T, F> carryDeadline(@NonNull final CompletionResult<T, F> derived,
+                                                                      @Nullable final DeadlineError<F> error) {
+    if (deadline == null) {
+      return derived;
+    }
+    if (derived.deadline != null && derived.deadline.earliest(deadline) == derived.deadline) {
+      return derived;
+    }
+    return new CompletionResult<>(derived.result, derived.stage, derived.promise, derived.fused, deadline, error);
+  }
+
+  static void composeExceptionImpl(@NonNull final Promise<?> future,
+                                   @NonNull final Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      future.fail(throwable.getCause());
+      return;
+    }
+    future.fail(throwable);
   }
 
-  private void composeExceptionImpl(@NonNull final CompletableFuture<?> future,
-                                    @NonNull final Throwable throwable) {
+  static void composeExceptionImpl(@NonNull final CompletableFuture<?> future,
+                                   @NonNull final Throwable throwable) {
     if (throwable instanceof CancellationException) {
       future.cancel(true);
       return;
@@ -275,7 +1297,326 @@ public class CompletionResult<V, E extends Enum<E>> {
     future.completeExceptionally(throwable);
   }
 
+  /**
+   * Returns the stage backing this {@code CompletionResult}.
+   *
+   * <p>Results that were created completed do not hold a stage, a new completed stage is returned for them.
+   * Results of operators return a {@code CompletableFuture} view of their internal promise, cancelling it
+   * cancels the result.
+   *
+   * @return the stage of the result
+   */
+  @NonNull
+  public CompletionStage<Result<V, E>> toCompletionStage() {
+    if (stage != null) {
+      return stage;
+    }
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      return pending.toCompletableFuture();
+    }
+    return CompletableFuture.completedFuture(result);
+  }
+
+  /**
+   * Waits for the result, parking the current thread until it is available.
+   *
+   * <p>The wait does not pin the carrier when the current thread is a virtual thread.
+   *
+   * @return the result
+   * @throws InterruptedException if the current thread was interrupted while waiting
+   * @throws ExecutionException if the result was completed exceptionally
+   * @throws CancellationException if the result was cancelled
+   */
+  public Result<V, E> await() throws InterruptedException, ExecutionException {
+    if (result != null) {
+      return result;
+    }
+    return completableFuture().get();
+  }
+
+  /**
+   * Waits for the result at most for the specified time, parking the current thread until it is available.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return the result
+   * @throws InterruptedException if the current thread was interrupted while waiting
+   * @throws ExecutionException if the result was completed exceptionally
+   * @throws TimeoutException if the result was not available in time
+   * @throws CancellationException if the result was cancelled
+   */
+  public Result<V, E> await(final long timeout, final TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    requireNonNull(unit);
+    if (result != null) {
+      return result;
+    }
+    return completableFuture().get(timeout, unit);
+  }
+
+  /**
+   * Waits for the result at most for the specified duration, parking the current thread until it is available.
+   *
+   * @param timeout the maximum time to wait
+   * @return the result
+   * @throws InterruptedException if the current thread was interrupted while waiting
+   * @throws ExecutionException if the result was completed exceptionally
+   * @throws TimeoutException if the result was not available in time
+   * @throws CancellationException if the result was cancelled
+   */
+  public Result<V, E> await(final Duration timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    return await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  @NonNull
+  private CompletableFuture<Result<V, E>> completableFuture() {
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      return pending.toCompletableFuture();
+    }
+    // the stage may be completed by callbacks the current thread deferred, run them before waiting:
+    Promise.Trampoline.current().drain();
+    if (stage instanceof CompletableFuture) {
+      return (CompletableFuture<Result<V, E>>) stage;
+    }
+    // stages are not required to support toCompletableFuture():
+    final CompletableFuture<Result<V, E>> future = new CompletableFuture<>();
+    toCompletionStage().whenComplete((res, throwable) -> {
+      if (throwable != null) {
+        composeExceptionImpl(future, throwable);
+      } else {
+        future.complete(res);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Cancels this result if it is pending, completing it exceptionally with a {@code CancellationException}.
+   *
+   * <p>Cancellation propagates upstream: the results this one was derived from by operators and combinators,
+   * and the results returned by the mappings of compose operators, are cancelled too, down to the stages
+   * they were created from, which are cancelled with {@code mayInterruptIfRunning} set. A result with several
+   * results derived from it is only cancelled once all of those are cancelled.
+   * Use {@link #onCancel(Runnable)} on the source result to abort the operation behind it.
+   *
+   * @return {@code true} if this call cancelled the result
+   */
+  public boolean cancel() {
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      return pending.cancel();
+    }
+    if (stage == null) {
+      // completed results have nothing to cancel:
+      return false;
+    }
+    try {
+      return stage.toCompletableFuture().cancel(true);
+    } catch (final UnsupportedOperationException ignore) {
+      // the stage does not support cancellation
+      return false;
+    }
+  }
+
+  /**
+   * Registers a hook run when this result is cancelled, right away if it is cancelled already.
+   * The hook runs on the thread cancelling the result, it should only signal the operation to abort.
+   *
+   * @param hook action to abort the operation behind this result
+   * @return this result
+   */
+  public CompletionResult<V, E> onCancel(final Runnable hook) {
+    requireNonNull(hook);
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      pending.onCancel(hook);
+    } else if (stage != null) {
+      stage.whenComplete((res, throwable) -> {
+        if (throwable instanceof CancellationException) {
+          hook.run();
+        }
+      });
+    }
+    return this;
+  }
+
+  void whenComplete(@NonNull final BiConsumer<? super Result<V, E>, ? super Throwable> action) {
+    if (result != null) {
+      action.accept(result, null);
+      return;
+    }
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      pending.subscribe(action);
+      return;
+    }
+    stage.whenComplete(action);
+  }
+
   Result<V, E> getBlocking() {
+    if (result != null) {
+      return result;
+    }
+    final Promise<Result<V, E>> pending = pending();
+    if (pending != null) {
+      return pending.join();
+    }
+    Promise.Trampoline.current().drain();
     return stage.toCompletableFuture().join();
   }
+
+  // error of a deadline, as mapped by the error mappings of the results the deadline was carried to; the mappings
+  // are applied when the error is needed, not when the deadline is carried, and their result is kept:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final class DeadlineError<E extends Enum<E>> {
+
+    @Nullable
+    private final DeadlineError<?> source;
+    @Nullable
+    private final Function mapping;
+    @Nullable
+    private volatile E error;
+
+    private DeadlineError(@Nullable final DeadlineError<?> source, @Nullable final Function mapping, @Nullable final E error) {
+      this.source = source;
+      this.mapping = mapping;
+      this.error = error;
+    }
+
+    @NonNull
+    static <E extends Enum<E>> DeadlineError<E> of(@NonNull final E error) {
+      return new DeadlineError<>(null, null, error);
+    }
+
+    @NonNull
+    <F extends Enum<F>> DeadlineError<F> map(@NonNull final Function<E, F> errorMapping) {
+      return new DeadlineError<>(this, errorMapping, null);
+    }
+
+    @NonNull
+    E get() {
+      E current = error;
+      if (current == null) {
+        // racing threads may both apply the mapping, like racing dependents of a CompletableFuture:
+        current = requireNonNull((E) mapping.apply(source.get()), "Mapping returned null");
+        error = current;
+      }
+      return current;
+    }
+  }
+
+  // stage of a chain of synchronous mappings, applied in order in one callback of the result the chain was
+  // started on; each stage is mapped by at most one stage of the chain, other dependents wait for its outcome:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final class FusedStage<V, E extends Enum<E>> extends Dependents {
+
+    private static final AtomicReferenceFieldUpdater<FusedStage, Object> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(FusedStage.class, Object.class, "next");
+    private static final AtomicReferenceFieldUpdater<FusedStage, Object> OUTCOME =
+        AtomicReferenceFieldUpdater.newUpdater(FusedStage.class, Object.class, "outcome");
+    // next of the stages the chain ran past without a next one, they can no longer be extended:
+    private static final Object SEALED = new Object();
+
+    @NonNull
+    private final CompletionResult<?, ?> source;
+    // stage this one maps, null for the first stage of the chain:
+    @Nullable
+    private final FusedStage<?, ?> previous;
+    @NonNull
+    private final Function<Result<?, ?>, Result<V, E>> function;
+    // null, the stage mapping this one, or SEALED:
+    @Nullable
+    private volatile Object next;
+    // null, the promise of the dependents waiting for this stage, then the result or the exception:
+    @Nullable
+    private volatile Object outcome;
+
+    private FusedStage(@NonNull final CompletionResult<?, ?> source,
+                       @Nullable final FusedStage<?, ?> previous,
+                       @NonNull final Function<Result<?, ?>, Result<V, E>> function) {
+      this.source = source;
+      this.previous = previous;
+      this.function = function;
+    }
+
+    @NonNull
+    static <V, E extends Enum<E>, T, F extends Enum<F>> FusedStage<T, F> start(
+        @NonNull final CompletionResult<V, E> source,
+        @NonNull final Function<Result<V, E>, Result<T, F>> function) {
+      final FusedStage<T, F> first = new FusedStage<>(source, null, (Function) function);
+      source.addDependent();
+      source.whenComplete((res, throwable) -> run(first, res, throwable));
+      return first;
+    }
+
+    // stage applying the function to the outcome of this one, null if this one was extended or ran already:
+    @Nullable
+    <T, F extends Enum<F>> FusedStage<T, F> extend(@NonNull final Function<Result<V, E>, Result<T, F>> mapping) {
+      final FusedStage<T, F> extended = new FusedStage<>(source, this, (Function) mapping);
+      if (!NEXT.compareAndSet(this, null, extended)) {
+        return null;
+      }
+      addDependent();
+      return extended;
+    }
+
+    @NonNull
+    Promise<Result<V, E>> observe() {
+      Object current = outcome;
+      if (current == null) {
+        final Promise<Result<V, E>> created = new Promise<>();
+        if (OUTCOME.compareAndSet(this, null, created)) {
+          created.onCancel(this::releaseUpstream);
+          return created;
+        }
+        current = outcome;
+      }
+      if (current instanceof Promise) {
+        return (Promise<Result<V, E>>) current;
+      }
+      final Promise<Result<V, E>> completed = new Promise<>();
+      settle((Promise) completed, current);
+      return completed;
+    }
+
+    // the cancelled stage no longer needs the one it maps, which is cancelled once none of its dependents need it:
+    private void releaseUpstream() {
+      if (previous == null) {
+        source.releaseDependent();
+      } else if (previous.releaseDependent()) {
+        previous.observe().cancel();
+      }
+    }
+
+    private static void run(@NonNull final FusedStage<?, ?> first,
+                            @Nullable final Result<?, ?> res,
+                            @Nullable final Throwable throwable) {
+      Object current = throwable == null ? res : wrapException(throwable);
+      FusedStage<?, ?> stage = first;
+      while (true) {
+        if (!(current instanceof Throwable)) {
+          try {
+            current = requireNonNull(stage.function.apply((Result) current));
+          } catch (final Throwable mappingThrowable) {
+            current = wrapException(mappingThrowable);
+          }
+        }
+        final Object waiting = OUTCOME.getAndSet(stage, current);
+        if (waiting instanceof Promise && !settle((Promise) waiting, current)) {
+          // the stage was cancelled, the stages mapping it fail like the dependents of a cancelled stage:
+          current = wrapException(new CancellationException());
+        }
+        if (NEXT.compareAndSet(stage, null, SEALED)) {
+          return;
+        }
+        stage = (FusedStage<?, ?>) stage.next;
+      }
+    }
+
+    private static boolean settle(@NonNull final Promise<Object> promise, @NonNull final Object outcome) {
+      return outcome instanceof Throwable ? promise.fail((Throwable) outcome) : promise.complete(outcome);
+    }
+  }
 }
@@ -0,0 +1,271 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Cache sharing one in-flight load per key among all the callers of the key, and optionally keeping
+ * the completed results for a time to live.
+ *
+ * <p>Value results and every error constant have their own time to live, results without one, and exceptions,
+ * are dropped as soon as the load completes. At most {@code maxSize} completed results are kept, the oldest
+ * ones are evicted first.
+ *
+ * <p>Every caller gets its own view of the shared load, cancelling it does not cancel the load. The map is
+ * only updated with {@code putIfAbsent}, {@code replace} and {@code remove} of the exact entry, no locks.
+ *
+ * @param <K> the class of the keys
+ * @param <V> the class of the values
+ * @param <E> the enum class of the error
+ */
+public final class CompletionResultCache<K, V, E extends Enum<E>> {
+
+  private final ConcurrentHashMap<K, Entry<K, V, E>> entries = new ConcurrentHashMap<>();
+  // completed entries in the order they were kept, including the ones removed since, which count against the size:
+  private final Queue<Entry<K, V, E>> retained = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger retainedCount = new AtomicInteger();
+  private final Function<K, CompletionResult<V, E>> loader;
+  private final int maxSize;
+  private final long valueTtlNanos;
+  // time to live per ordinal, 0 for errors that are not kept:
+  private final long[] errorTtlNanos;
+
+  private CompletionResultCache(@NonNull final Function<K, CompletionResult<V, E>> loader,
+                                final int maxSize,
+                                final long valueTtlNanos,
+                                @NonNull final long[] errorTtlNanos) {
+    this.loader = loader;
+    this.maxSize = maxSize;
+    this.valueTtlNanos = valueTtlNanos;
+    this.errorTtlNanos = errorTtlNanos;
+  }
+
+  /**
+   * Returns a cache sharing the in-flight loads without keeping the results.
+   *
+   * @param loader loader of the result of a key
+   * @param <K> the class of the keys
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return the cache
+   */
+  @NonNull
+  public static <K, V, E extends Enum<E>> CompletionResultCache<K, V, E> singleFlight(
+      @NonNull final Function<K, CompletionResult<V, E>> loader) {
+    return create(loader, 0, Duration.ZERO, Collections.emptyMap());
+  }
+
+  /**
+   * Returns a cache sharing the in-flight loads and keeping the completed results.
+   *
+   * @param loader loader of the result of a key
+   * @param maxSize the maximum number of completed results to keep
+   * @param valueTtl the time to keep value results for, {@link Duration#ZERO} to not keep them
+   * @param errorTtls the time to keep error results for, per error constant; missing constants are not kept
+   * @param <K> the class of the keys
+   * @param <V> the class of the values
+   * @param <E> the enum class of the error
+   * @return the cache
+   * @throws IllegalArgumentException if {@code maxSize} or a time to live is negative
+   */
+  @NonNull
+  public static <K, V, E extends Enum<E>> CompletionResultCache<K, V, E> create(@NonNull final Function<K, CompletionResult<V, E>> loader,
+                                                                                final int maxSize,
+                                                                                @NonNull final Duration valueTtl,
+                                                                                @NonNull final Map<E, Duration> errorTtls) {
+    requireNonNull(loader);
+    requireNonNull(valueTtl);
+    requireNonNull(errorTtls);
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Max size must not be negative: " + maxSize);
+    }
+    if (valueTtl.isNegative()) {
+      throw new IllegalArgumentException("Value TTL must not be negative: " + valueTtl);
+    }
+    long[] errorTtlNanos = new long[0];
+    for (final Map.Entry<E, Duration> errorTtl : errorTtls.entrySet()) {
+      if (errorTtl.getValue().isNegative()) {
+        throw new IllegalArgumentException("Error TTL must not be negative: " + errorTtl);
+      }
+      if (errorTtlNanos.length == 0) {
+        errorTtlNanos = new long[errorTtl.getKey().getDeclaringClass().getEnumConstants().length];
+      }
+      errorTtlNanos[errorTtl.getKey().ordinal()] = errorTtl.getValue().toNanos();
+    }
+    return new CompletionResultCache<>(loader, maxSize, valueTtl.toNanos(), errorTtlNanos);
+  }
+
+  /**
+   * Returns the result of the key: the kept one if it did not expire, the one in flight, or a new load.
+   *
+   * @param key the key
+   * @return a view of the shared result, cancelling it does not cancel the load
+   */
+  @NonNull
+  public CompletionResult<V, E> get(@NonNull final K key) {
+    requireNonNull(key);
+    while (true) {
+      final Entry<K, V, E> current = entries.get(key);
+      if (current != null && !current.isExpired()) {
+        return current.view();
+      }
+      final Entry<K, V, E> created = new Entry<>(key);
+      final boolean installed = current == null
+                                ? entries.putIfAbsent(key, created) == null
+                                : entries.replace(key, current, created);
+      if (installed) {
+        load(created);
+        return created.view();
+      }
+      // lost the race to another caller, use its entry:
+    }
+  }
+
+  /**
+   * Drops the result of the key, the next call loads it again. Loads in flight are not cancelled.
+   *
+   * @param key the key
+   */
+  public void invalidate(@NonNull final K key) {
+    requireNonNull(key);
+    entries.remove(key);
+  }
+
+  /**
+   * Returns the number of keys with a kept or in-flight result, including expired ones not replaced yet.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  private void load(@NonNull final Entry<K, V, E> entry) {
+    CompletionResult<V, E> loaded;
+    try {
+      loaded = requireNonNull(loader.apply(entry.key));
+    } catch (final Throwable loaderThrowable) {
+      final CompletableFuture<Result<V, E>> failed = new CompletableFuture<>();
+      CompletionResult.composeExceptionImpl(failed, loaderThrowable);
+      loaded = CompletionResult.forStageResult(failed);
+    }
+    loaded.whenComplete((res, throwable) -> {
+      onLoaded(entry, res);
+      if (throwable != null) {
+        CompletionResult.composeExceptionImpl(entry.shared, throwable);
+      } else {
+        entry.shared.complete(res);
+      }
+    });
+  }
+
+  private void onLoaded(@NonNull final Entry<K, V, E> entry, @Nullable final Result<V, E> result) {
+    final long ttlNanos = ttlNanos(result);
+    if (ttlNanos <= 0 || maxSize == 0) {
+      entries.remove(entry.key, entry);
+      return;
+    }
+    entry.expiry = Deadline.after(ttlNanos, TimeUnit.NANOSECONDS);
+    retained.add(entry);
+    if (retainedCount.incrementAndGet() > maxSize) {
+      evict();
+    }
+  }
+
+  private long ttlNanos(@Nullable final Result<V, E> result) {
+    if (result == null) {
+      return 0;
+    }
+    if (result.isValue()) {
+      return valueTtlNanos;
+    }
+    final int ordinal = result.error().ordinal();
+    return ordinal < errorTtlNanos.length ? errorTtlNanos[ordinal] : 0;
+  }
+
+  private void evict() {
+    while (retainedCount.get() > maxSize) {
+      final Entry<K, V, E> oldest = retained.poll();
+      if (oldest == null) {
+        return;
+      }
+      retainedCount.decrementAndGet();
+      entries.remove(oldest.key, oldest);
+    }
+  }
+
+  private static final class Entry<K, V, E extends Enum<E>> {
+
+    private final K key;
+    // completed with the load, never exposed, so that callers cannot cancel it:
+    private final CompletableFuture<Result<V, E>> shared = new CompletableFuture<>();
+    // null while in flight:
+    @Nullable
+    private volatile Deadline expiry;
+
+    private Entry(@NonNull final K key) {
+      this.key = key;
+    }
+
+    private boolean isExpired() {
+      final Deadline current = expiry;
+      return current != null && current.isExpired();
+    }
+
+    @NonNull
+    private CompletionResult<V, E> view() {
+      final CompletableFuture<Result<V, E>> view = new CompletableFuture<>();
+      shared.whenComplete((res, throwable) -> {
+        if (throwable != null) {
+          CompletionResult.composeExceptionImpl(view, throwable);
+        } else {
+          view.complete(res);
+        }
+      });
+      return CompletionResult.forStageResult(view);
+    }
+  }
+}
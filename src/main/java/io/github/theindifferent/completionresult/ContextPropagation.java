@@ -0,0 +1,165 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Registry of the {@link ContextPropagator}s applied to the callbacks of {@code thenApply*}, {@code thenCompose*}
+ * and {@code onResult*} operators of pending results.
+ *
+ * <p>Propagators are held in a copy-on-write array: without any registered, attaching an operator costs
+ * a volatile read and callbacks are not wrapped.
+ */
+public final class ContextPropagation {
+
+  private static final ContextPropagator[] NONE = new ContextPropagator[0];
+
+  private static volatile ContextPropagator[] propagators = NONE;
+
+  private ContextPropagation() {
+  }
+
+  /**
+   * Registers the propagator for the operators attached from now on.
+   *
+   * @param propagator the propagator
+   */
+  public static synchronized void register(final ContextPropagator propagator) {
+    requireNonNull(propagator);
+    final ContextPropagator[] current = propagators;
+    final ContextPropagator[] updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = propagator;
+    propagators = updated;
+  }
+
+  /**
+   * Unregisters the propagator, callbacks of the operators attached already still propagate with it.
+   *
+   * @param propagator the propagator
+   * @return {@code true} if the propagator was registered
+   */
+  public static synchronized boolean unregister(final ContextPropagator propagator) {
+    requireNonNull(propagator);
+    final ContextPropagator[] current = propagators;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == propagator) {
+        final ContextPropagator[] updated = new ContextPropagator[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, i);
+        System.arraycopy(current, i + 1, updated, i, updated.length - i);
+        propagators = updated.length == 0 ? NONE : updated;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // the function itself if there is no propagator, otherwise the function run with the contexts of this thread:
+  @NonNull
+  static <T, R> Function<T, R> wrapFunction(@NonNull final Function<T, R> function) {
+    final ContextPropagator[] current = propagators;
+    if (current.length == 0) {
+      return function;
+    }
+    final Object[] captured = capture(current);
+    return argument -> {
+      final Object[] previous = restore(current, captured);
+      try {
+        return function.apply(argument);
+      } finally {
+        reset(current, previous);
+      }
+    };
+  }
+
+  @NonNull
+  static <T> Consumer<T> wrapConsumer(@NonNull final Consumer<T> consumer) {
+    final ContextPropagator[] current = propagators;
+    if (current.length == 0) {
+      return consumer;
+    }
+    final Object[] captured = capture(current);
+    return argument -> {
+      final Object[] previous = restore(current, captured);
+      try {
+        consumer.accept(argument);
+      } finally {
+        reset(current, previous);
+      }
+    };
+  }
+
+  @NonNull
+  private static Object[] capture(@NonNull final ContextPropagator[] current) {
+    final Object[] captured = new Object[current.length];
+    for (int i = 0; i < current.length; i++) {
+      captured[i] = current[i].capture();
+    }
+    return captured;
+  }
+
+  // contexts replaced by the captured ones, null if all of them were the captured ones already:
+  @Nullable
+  private static Object[] restore(@NonNull final ContextPropagator[] current, @NonNull final Object[] captured) {
+    Object[] previous = null;
+    for (int i = 0; i < current.length; i++) {
+      final Object active = current[i].capture();
+      if (active != captured[i]) {
+        if (previous == null) {
+          previous = new Object[current.length];
+          Arrays.fill(previous, NONE);
+        }
+        previous[i] = active;
+        current[i].restore(captured[i]);
+      }
+    }
+    return previous;
+  }
+
+  private static void reset(@NonNull final ContextPropagator[] current, @Nullable final Object[] previous) {
+    if (previous == null) {
+      return;
+    }
+    // in reverse order, like nested scopes:
+    for (int i = current.length - 1; i >= 0; i--) {
+      if (previous[i] != NONE) {
+        current[i].restore(previous[i]);
+      }
+    }
+  }
+}
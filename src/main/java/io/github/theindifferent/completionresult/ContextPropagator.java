@@ -0,0 +1,63 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Carries a thread-bound context, like a logging MDC or the current tracing span, from the thread attaching
+ * an operator to the thread running its callback.
+ *
+ * <p>{@link #capture()} is called for every operator attached to a pending result, it should return an
+ * immutable snapshot by reference, e.g. a copy-on-write map, rather than copy the context. Contexts are
+ * compared by identity: the context is not restored when the callback runs with the captured one.
+ *
+ * @see ContextPropagation#register(ContextPropagator)
+ */
+public interface ContextPropagator {
+
+  /**
+   * Returns the context of the current thread.
+   *
+   * @return the context, may be {@code null} if there is none
+   */
+  @Nullable
+  Object capture();
+
+  /**
+   * Makes the context the one of the current thread. Called with the captured context before the callback,
+   * and with the previous one after it.
+   *
+   * @param context a context returned by {@link #capture()}
+   */
+  void restore(@Nullable Object context);
+}
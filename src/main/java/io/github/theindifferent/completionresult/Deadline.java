@@ -0,0 +1,160 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Point in time by which an operation has to complete, based on {@link System#nanoTime()}.
+ */
+public final class Deadline {
+
+  // far enough to never be reached, close enough to not overflow when compared:
+  private static final long MAX_NANOS = Long.MAX_VALUE >> 2;
+  private static final Deadline NONE = new Deadline(0, true);
+
+  private final long nanoTime;
+  private final boolean infinite;
+
+  private Deadline(final long nanoTime, final boolean infinite) {
+    this.nanoTime = nanoTime;
+    this.infinite = infinite;
+  }
+
+  /**
+   * Returns the deadline the specified duration from now.
+   *
+   * @param timeout the time left until the deadline
+   * @return the deadline
+   */
+  @NonNull
+  public static Deadline after(@NonNull final Duration timeout) {
+    requireNonNull(timeout);
+    return after(saturatedNanos(timeout), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the deadline the specified time from now.
+   *
+   * @param timeout the time left until the deadline
+   * @param unit the unit of the timeout
+   * @return the deadline
+   */
+  @NonNull
+  public static Deadline after(final long timeout, @NonNull final TimeUnit unit) {
+    requireNonNull(unit);
+    final long nanos = Math.max(0, Math.min(unit.toNanos(timeout), MAX_NANOS));
+    return new Deadline(System.nanoTime() + nanos, false);
+  }
+
+  /**
+   * Returns the deadline that never expires.
+   *
+   * @return the deadline that never expires
+   */
+  @NonNull
+  public static Deadline none() {
+    return NONE;
+  }
+
+  /**
+   * Returns {@code true} if the deadline has passed.
+   *
+   * @return {@code true} if the deadline has passed, {@code false} otherwise
+   */
+  public boolean isExpired() {
+    return !infinite && nanoTime - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Returns the time left until the deadline in nanoseconds, {@code 0} if it has passed.
+   *
+   * @return the time left in nanoseconds, {@link Long#MAX_VALUE} if the deadline never expires
+   */
+  public long remainingNanos() {
+    if (infinite) {
+      return Long.MAX_VALUE;
+    }
+    return Math.max(0, nanoTime - System.nanoTime());
+  }
+
+  /**
+   * Returns the time left until the deadline, {@link Duration#ZERO} if it has passed.
+   *
+   * @return the time left
+   */
+  @NonNull
+  public Duration remaining() {
+    return Duration.ofNanos(remainingNanos());
+  }
+
+  /**
+   * Returns the earlier of this and the specified deadline.
+   *
+   * @param other another deadline
+   * @return the earlier deadline
+   */
+  @NonNull
+  public Deadline earliest(@NonNull final Deadline other) {
+    requireNonNull(other);
+    if (infinite) {
+      return other;
+    }
+    if (other.infinite) {
+      return this;
+    }
+    return other.nanoTime - nanoTime < 0 ? other : this;
+  }
+
+  private static long saturatedNanos(@NonNull final Duration duration) {
+    try {
+      return duration.toNanos();
+    } catch (final ArithmeticException overflow) {
+      return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (infinite) {
+      return "Deadline{none}";
+    }
+    return "Deadline{"
+           + "remaining="
+           + remaining()
+           + '}';
+  }
+}
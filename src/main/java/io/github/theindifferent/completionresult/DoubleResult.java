@@ -0,0 +1,179 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.DoubleFunction;
+import java.util.function.DoubleUnaryOperator;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Value class holding either an unboxed {@code double} value of the operation, or enum code of error.
+ *
+ * <p>Same as {@code Result<Double, E>}, without allocating the {@code Double}.
+ *
+ * @param <E> the enum class of the error
+ */
+public final class DoubleResult<E extends Enum<E>> {
+
+  // error results do not hold a value, one instance per constant is enough:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final EnumTable<DoubleResult<?>> ERRORS = new EnumTable<>(error -> new DoubleResult(0, error));
+
+  private final double value;
+  @Nullable
+  private final E error;
+
+  private DoubleResult(final double value, @Nullable final E error) {
+    this.value = value;
+    this.error = error;
+  }
+
+  /**
+   * Returns a {@code DoubleResult} with the specified value.
+   *
+   * @param value the value
+   * @param <E> the enum class of the error
+   * @return {@code DoubleResult} instance holding the value
+   */
+  public static <E extends Enum<E>> DoubleResult<E> forValue(final double value) {
+    return new DoubleResult<>(value, null);
+  }
+
+  /**
+   * Returns a {@code DoubleResult} with the specified non-null error, the same instance for the same error code.
+   *
+   * @param error error code
+   * @param <E> the enum class of the error
+   * @return {@code DoubleResult} instance holding the error
+   */
+  @SuppressWarnings("unchecked")
+  public static <E extends Enum<E>> DoubleResult<E> forError(@NonNull final E error) {
+    requireNonNull(error);
+    return (DoubleResult<E>) ERRORS.get(error);
+  }
+
+  /**
+   * Returns the value.
+   *
+   * @return the value
+   * @throws IllegalStateException if {@code DoubleResult} is an error
+   */
+  public double value() throws IllegalStateException {
+    if (error != null) {
+      throw new IllegalStateException("Error result does not have value");
+    }
+    return value;
+  }
+
+  /**
+   * Returns the wrapped error code, never {@code null}.
+   *
+   * @return the error code, never {@code null}
+   * @throws IllegalStateException if {@code DoubleResult} is a value
+   */
+  @NonNull
+  public E error() throws IllegalStateException {
+    if (error == null) {
+      throw new IllegalStateException("Successful result does not have error");
+    }
+    return error;
+  }
+
+  public boolean isValue() {
+    return error == null;
+  }
+
+  public boolean isError() {
+    return error != null;
+  }
+
+  /**
+   * Returns the result of the mapping applied to the value, this result if it is an error.
+   *
+   * @param mapping mapping of the value
+   * @return the mapped result
+   */
+  public DoubleResult<E> map(final DoubleUnaryOperator mapping) {
+    requireNonNull(mapping);
+    return error == null ? forValue(mapping.applyAsDouble(value)) : this;
+  }
+
+  /**
+   * Returns the {@code Result} of the mapping applied to the value, or holding the error.
+   *
+   * @param mapping mapping of the value to a non-null instance
+   * @param <V> the class of the mapped value
+   * @return the mapped result
+   */
+  public <V> Result<V, E> mapToObj(final DoubleFunction<V> mapping) {
+    requireNonNull(mapping);
+    return error == null ? Result.forValue(mapping.apply(value)) : Result.forError(error);
+  }
+
+  public Result<Double, E> boxed() {
+    return error == null ? Result.forValue(value) : Result.forError(error);
+  }
+
+  @Override
+  public boolean equals(@Nullable final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final DoubleResult<?> that = (DoubleResult<?>) o;
+    return Double.compare(value, that.value) == 0 && error == that.error;
+  }
+
+  @Override
+  public int hashCode() {
+    return error == null ? Double.hashCode(value) : error.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    if (error != null) {
+      return "DoubleResult{"
+             + "error="
+             + error
+             + '}';
+    }
+    return "DoubleResult{"
+           + "value="
+           + value
+           + '}';
+  }
+}
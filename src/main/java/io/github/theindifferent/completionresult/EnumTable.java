@@ -31,62 +31,41 @@
  */
 package io.github.theindifferent.completionresult;
 
-import java.util.Objects;
+import java.util.function.Function;
 import org.checkerframework.checker.nullness.qual.NonNull;
-import org.checkerframework.checker.nullness.qual.Nullable;
 
-class ResultError<V, E extends Enum<E>> implements Result<V, E> {
-
-  private final E error;
-
-  ResultError(final E error) {
-    this.error = error;
-  }
-
-  @NonNull
-  @Override
-  public V value() {
-    throw new IllegalStateException("Error result does not have value");
-  }
-
-  @NonNull
-  @Override
-  public E error() {
-    return error;
-  }
+/**
+ * Lazily built per enum class table of instances, indexed by {@link Enum#ordinal()}.
+ *
+ * @param <T> the class of the instances
+ */
+final class EnumTable<T> extends ClassValue<Object[]> {
 
-  @Override
-  public boolean isValue() {
-    return false;
-  }
+  private final Function<Enum<?>, T> factory;
 
-  @Override
-  public boolean isError() {
-    return true;
+  EnumTable(@NonNull final Function<Enum<?>, T> factory) {
+    this.factory = factory;
   }
 
   @Override
-  public boolean equals(@Nullable final Object o) {
-    if (this == o) {
-      return true;
-    }
-    if (o == null || getClass() != o.getClass()) {
-      return false;
+  protected Object[] computeValue(final Class<?> type) {
+    final Object[] constants = type.getEnumConstants();
+    final Object[] table = new Object[constants.length];
+    for (int i = 0; i < constants.length; i++) {
+      table[i] = factory.apply((Enum<?>) constants[i]);
     }
-    final ResultError<?, ?> that = (ResultError<?, ?>) o;
-    return Objects.equals(error, that.error);
+    return table;
   }
 
-  @Override
-  public int hashCode() {
-    return Objects.hash(error);
-  }
-
-  @Override
-  public String toString() {
-    return "Result{"
-           + "error="
-           + error
-           + '}';
+  /**
+   * Returns the instance for the specified constant, the table of its enum class is built on first access.
+   *
+   * @param constant enum constant
+   * @return the instance for the constant
+   */
+  @NonNull
+  @SuppressWarnings("unchecked")
+  T get(@NonNull final Enum<?> constant) {
+    return (T) get(constant.getDeclaringClass())[constant.ordinal()];
   }
 }
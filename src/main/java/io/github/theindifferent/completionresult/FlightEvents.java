@@ -0,0 +1,75 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Java Flight Recorder events of results, replaced by the Java 11 version in the multi-release jar.
+ *
+ * <p>Events are started by returning a handle, {@code null} when they are not recorded, in which case the
+ * callers do not subscribe to the completion at all.
+ */
+final class FlightEvents {
+
+  private FlightEvents() {
+  }
+
+  /**
+   * Starts the stage event of a traced result.
+   *
+   * @param step name of the traced step
+   * @return {@code null} as flight recorder events are not supported by this Java version
+   */
+  @Nullable
+  static Object stageStarted(@NonNull final String step) {
+    return null;
+  }
+
+  static void stageCompleted(@NonNull final Object stage, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+  }
+
+  /**
+   * Starts the event of a compose hop, from the call of the mapping to the completion of its result.
+   *
+   * @param mapping the mapping of the compose operator
+   * @return {@code null} as flight recorder events are not supported by this Java version
+   */
+  @Nullable
+  static Object composeStarted(@NonNull final Object mapping) {
+    return null;
+  }
+
+  static void composeCompleted(@NonNull final Object hop, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+  }
+}
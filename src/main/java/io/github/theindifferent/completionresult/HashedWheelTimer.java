@@ -0,0 +1,340 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * {@link Timer} keeping the tasks in a wheel of buckets, one bucket per tick.
+ *
+ * <p>Scheduling and cancelling are a single lock-free push, without allocations besides the timeout itself;
+ * the worker thread moves new timeouts into the buckets and runs the expired ones once per tick,
+ * so tasks run up to one tick later than requested. This trades precision for constant cost per timeout,
+ * which suits timeouts that are mostly cancelled before they expire.
+ */
+public final class HashedWheelTimer implements Timer {
+
+  private static final int STATE_INIT = 0;
+  private static final int STATE_STARTED = 1;
+  private static final int STATE_STOPPED = 2;
+
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  private final long startTime;
+  private final Thread worker;
+  private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+  // lock-free stacks, drained by the worker on every tick:
+  private final AtomicReference<Entry> pending = new AtomicReference<>();
+  private final AtomicReference<Entry> cancelled = new AtomicReference<>();
+
+  /**
+   * Creates a timer with a tick of 10 milliseconds and 512 buckets, running on a daemon thread.
+   */
+  public HashedWheelTimer() {
+    this(10, TimeUnit.MILLISECONDS, 512, runnable -> {
+      final Thread thread = new Thread(runnable, "completionresult-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Creates a timer.
+   *
+   * @param tickDuration the duration of a tick, the precision of the timer
+   * @param unit the unit of the tick duration
+   * @param ticksPerWheel the number of buckets, rounded up to a power of two
+   * @param threadFactory factory of the worker thread
+   */
+  public HashedWheelTimer(final long tickDuration,
+                          @NonNull final TimeUnit unit,
+                          final int ticksPerWheel,
+                          @NonNull final ThreadFactory threadFactory) {
+    requireNonNull(unit);
+    requireNonNull(threadFactory);
+    if (tickDuration <= 0) {
+      throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+    }
+    if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+      throw new IllegalArgumentException("Ticks per wheel must be in range (0, 2^30]: " + ticksPerWheel);
+    }
+    this.tickNanos = unit.toNanos(tickDuration);
+    // power of two, so the bucket of a tick is a mask away:
+    final int size = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+    this.wheel = new Bucket[size];
+    for (int i = 0; i < size; i++) {
+      this.wheel[i] = new Bucket();
+    }
+    this.mask = size - 1;
+    this.startTime = System.nanoTime();
+    this.worker = threadFactory.newThread(new Worker());
+  }
+
+  static Timer shared() {
+    return SharedHolder.TIMER;
+  }
+
+  @NonNull
+  @Override
+  public Timeout schedule(@NonNull final Runnable task, final long delay, @NonNull final TimeUnit unit) {
+    requireNonNull(task);
+    requireNonNull(unit);
+    start();
+    final long elapsed = System.nanoTime() - startTime;
+    final long delayNanos = Math.max(0, unit.toNanos(delay));
+    // saturate instead of overflowing for very long delays:
+    final long deadline = elapsed + delayNanos < 0 ? Long.MAX_VALUE : elapsed + delayNanos;
+    final Entry entry = new Entry(this, task, deadline);
+    push(pending, entry, false);
+    return entry;
+  }
+
+  /**
+   * Stops the worker thread, tasks that did not run yet are discarded.
+   */
+  public void stop() {
+    if (state.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  private void start() {
+    final int current = state.get();
+    if (current == STATE_STARTED) {
+      return;
+    }
+    if (current == STATE_STOPPED) {
+      throw new IllegalStateException("Timer was stopped");
+    }
+    if (state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+      worker.start();
+    } else if (state.get() == STATE_STOPPED) {
+      throw new IllegalStateException("Timer was stopped");
+    }
+  }
+
+  private static void push(@NonNull final AtomicReference<Entry> stack, @NonNull final Entry entry, final boolean cancelledStack) {
+    Entry head;
+    do {
+      head = stack.get();
+      if (cancelledStack) {
+        entry.nextCancelled = head;
+      } else {
+        entry.nextPending = head;
+      }
+    } while (!stack.compareAndSet(head, entry));
+  }
+
+  private final class Worker implements Runnable {
+
+    @Override
+    public void run() {
+      long tick = (System.nanoTime() - startTime) / tickNanos;
+      while (state.get() == STATE_STARTED) {
+        final long deadline = waitForTick(tick + 1);
+        if (deadline < 0) {
+          return;
+        }
+        removeCancelled();
+        transferPending(tick);
+        wheel[(int) (tick & mask)].expire(deadline);
+        tick++;
+      }
+    }
+
+    private long waitForTick(final long tick) {
+      final long deadline = tick * tickNanos;
+      while (true) {
+        final long current = System.nanoTime() - startTime;
+        if (current >= deadline) {
+          return current;
+        }
+        LockSupport.parkNanos(this, deadline - current);
+        if (state.get() != STATE_STARTED) {
+          return -1;
+        }
+      }
+    }
+
+    private void removeCancelled() {
+      Entry entry = cancelled.getAndSet(null);
+      while (entry != null) {
+        final Entry next = entry.nextCancelled;
+        entry.nextCancelled = null;
+        // not in a bucket yet if it was cancelled before the transfer, the transfer skips it:
+        if (entry.bucket != null) {
+          entry.bucket.remove(entry);
+        }
+        entry = next;
+      }
+    }
+
+    private void transferPending(final long tick) {
+      Entry entry = pending.getAndSet(null);
+      while (entry != null) {
+        final Entry next = entry.nextPending;
+        entry.nextPending = null;
+        if (entry.state == Entry.STATE_INIT) {
+          final long calculated = entry.deadline / tickNanos;
+          entry.remainingRounds = (calculated - tick) / wheel.length;
+          // deadlines already passed go to the current bucket:
+          final long ticks = Math.max(calculated, tick);
+          wheel[(int) (ticks & mask)].add(entry);
+        }
+        entry = next;
+      }
+    }
+  }
+
+  /**
+   * Doubly linked list of entries, only accessed by the worker.
+   */
+  private static final class Bucket {
+
+    private Entry head;
+    private Entry tail;
+
+    void add(@NonNull final Entry entry) {
+      entry.bucket = this;
+      if (head == null) {
+        head = entry;
+        tail = entry;
+      } else {
+        tail.next = entry;
+        entry.prev = tail;
+        tail = entry;
+      }
+    }
+
+    void remove(@NonNull final Entry entry) {
+      final Entry next = entry.next;
+      if (entry.prev != null) {
+        entry.prev.next = next;
+      }
+      if (entry.next != null) {
+        entry.next.prev = entry.prev;
+      }
+      if (entry == head) {
+        head = next;
+      }
+      if (entry == tail) {
+        tail = entry.prev;
+      }
+      entry.prev = null;
+      entry.next = null;
+      entry.bucket = null;
+    }
+
+    void expire(final long deadline) {
+      Entry entry = head;
+      while (entry != null) {
+        final Entry next = entry.next;
+        if (entry.remainingRounds <= 0) {
+          remove(entry);
+          if (entry.deadline <= deadline) {
+            entry.expire();
+          }
+        } else if (entry.state != Entry.STATE_INIT) {
+          remove(entry);
+        } else {
+          entry.remainingRounds--;
+        }
+        entry = next;
+      }
+    }
+  }
+
+  private static final class Entry implements Timeout {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Entry> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+    private final HashedWheelTimer timer;
+    private final Runnable task;
+    private final long deadline;
+    private volatile int state;
+    // pushed by scheduling and cancelling threads, read by the worker:
+    private Entry nextPending;
+    private Entry nextCancelled;
+    // only accessed by the worker:
+    private long remainingRounds;
+    @Nullable
+    private Bucket bucket;
+    @Nullable
+    private Entry prev;
+    @Nullable
+    private Entry next;
+
+    Entry(@NonNull final HashedWheelTimer timer, @NonNull final Runnable task, final long deadline) {
+      this.timer = timer;
+      this.task = task;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public boolean cancel() {
+      if (!STATE.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) {
+        return false;
+      }
+      push(timer.cancelled, this, true);
+      return true;
+    }
+
+    void expire() {
+      if (!STATE.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+        return;
+      }
+      try {
+        task.run();
+      } catch (final Throwable ignore) {
+        // a failing task must not stop the worker
+      }
+    }
+  }
+
+  private static final class SharedHolder {
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Starts attempts of the supplier after the delay of the policy, or right away after a hedgeable error,
+ * and completes with the first value, exception or not hedgeable error. The losers are cancelled. The timer task
+ * of the delay only hands the attempt off to the executor of the policy.
+ *
+ * <p>{@code pending} counts the attempts in flight plus the launches in progress; it is incremented before
+ * an attempt is reserved, so that it only drops to zero once no attempt can be started any more.
+ *
+ * @param <V> the class of the value
+ * @param <E> the enum class of the error
+ */
+final class Hedge<V, E extends Enum<E>> {
+
+  private final Promise<Result<V, E>> future = new Promise<>();
+  private final Supplier<CompletionResult<V, E>> supplier;
+  private final Set<E> hedgeable;
+  private final HedgePolicy policy;
+  private final AtomicReferenceArray<CompletionResult<V, E>> attempts;
+  private final AtomicInteger launched = new AtomicInteger();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicReference<Result<V, E>> lastError = new AtomicReference<>();
+
+  private Hedge(@NonNull final Supplier<CompletionResult<V, E>> supplier,
+                @NonNull final Set<E> hedgeable,
+                @NonNull final HedgePolicy policy) {
+    this.supplier = supplier;
+    this.hedgeable = hedgeable;
+    this.policy = policy;
+    this.attempts = new AtomicReferenceArray<>(policy.maxAttempts());
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<V, E> hedge(@NonNull final Supplier<CompletionResult<V, E>> supplier,
+                                                             @NonNull final Set<E> hedgeable,
+                                                             @NonNull final HedgePolicy policy) {
+    final Hedge<V, E> hedge = new Hedge<>(supplier, hedgeable, policy);
+    hedge.future.subscribe((res, throwable) -> hedge.cancelAttempts());
+    hedge.launch();
+    return CompletionResult.forPromise(hedge.future);
+  }
+
+  private void launch() {
+    pending.incrementAndGet();
+    final int index = reserve();
+    if (index < 0 || future.isDone()) {
+      settle();
+      return;
+    }
+    final long start = System.nanoTime();
+    final CompletionResult<V, E> attempt;
+    try {
+      attempt = requireNonNull(supplier.get());
+    } catch (final Throwable supplierThrowable) {
+      CompletionResult.composeExceptionImpl(future, supplierThrowable);
+      return;
+    }
+    attempts.set(index, attempt);
+    if (future.isDone()) {
+      // completed while the supplier ran, cancelAttempts() may have missed this one:
+      attempt.cancel();
+    }
+    Timer.Timeout hedgeTimer = null;
+    if (index + 1 < policy.maxAttempts()) {
+      try {
+        hedgeTimer = policy.timer().schedule(this::dispatch, policy.delayNanos(), TimeUnit.NANOSECONDS);
+      } catch (final Throwable timerThrowable) {
+        CompletionResult.composeExceptionImpl(future, timerThrowable);
+      }
+    }
+    final Timer.Timeout scheduled = hedgeTimer;
+    attempt.whenComplete((res, throwable) -> onAttempt(start, scheduled, res, throwable));
+  }
+
+  private void dispatch() {
+    CompletionResult.execute(policy.executor(), future, this::launch);
+  }
+
+  private int reserve() {
+    int current;
+    do {
+      current = launched.get();
+      if (current >= policy.maxAttempts()) {
+        return -1;
+      }
+    } while (!launched.compareAndSet(current, current + 1));
+    return current;
+  }
+
+  private void onAttempt(final long start,
+                         @Nullable final Timer.Timeout hedgeTimer,
+                         @Nullable final Result<V, E> result,
+                         @Nullable final Throwable throwable) {
+    // the next attempt is started by the outcome of this one, or not at all:
+    if (hedgeTimer != null) {
+      hedgeTimer.cancel();
+    }
+    // attempts that failed or were cancelled as losers took at least this long, leaving them out would
+    // bias the percentile towards the winners and shorten the delay:
+    policy.recordLatency(System.nanoTime() - start);
+    if (throwable != null) {
+      CompletionResult.composeExceptionImpl(future, throwable);
+      return;
+    }
+    if (result == null || result.isValue() || !hedgeable.contains(result.error())) {
+      future.complete(result);
+      return;
+    }
+    lastError.set(result);
+    launch();
+    settle();
+  }
+
+  private void settle() {
+    if (pending.decrementAndGet() == 0 && launched.get() >= policy.maxAttempts()) {
+      // every attempt ended with a hedgeable error:
+      future.complete(lastError.get());
+    }
+  }
+
+  private void cancelAttempts() {
+    for (int index = 0; index < attempts.length(); index++) {
+      final CompletionResult<V, E> attempt = attempts.get(index);
+      if (attempt != null) {
+        attempt.cancel();
+      }
+    }
+  }
+}
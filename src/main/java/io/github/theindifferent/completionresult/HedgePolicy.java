@@ -0,0 +1,196 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Policy of {@link CompletionResult#hedged(java.util.function.Supplier, Set, HedgePolicy)}: the number of attempts
+ * and the delay before each additional one.
+ *
+ * <p>Adaptive policies keep the latencies of the attempts they were used for and derive the delay from their
+ * percentile, a policy is meant to be shared by all the calls to the same backend.
+ *
+ * <p>The delays are scheduled on a timer, which only hands the additional attempts off to the executor invoking
+ * the supplier, so that slow suppliers do not hold up the other tasks of the timer.
+ */
+public final class HedgePolicy {
+
+  private final int maxAttempts;
+  private final long delayNanos;
+  @Nullable
+  private final LatencyReservoir latencies;
+  @NonNull
+  private final Timer timer;
+  @NonNull
+  private final Executor executor;
+
+  private HedgePolicy(final int maxAttempts,
+                      final long delayNanos,
+                      @Nullable final LatencyReservoir latencies,
+                      @NonNull final Timer timer,
+                      @NonNull final Executor executor) {
+    this.maxAttempts = maxAttempts;
+    this.delayNanos = delayNanos;
+    this.latencies = latencies;
+    this.timer = timer;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a policy starting another attempt whenever the specified delay passes without a result,
+   * scheduled on {@link Timer#shared()} and started on the default asynchronous executor.
+   *
+   * @param delay the delay before each additional attempt
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @return the policy
+   * @throws IllegalArgumentException if {@code maxAttempts} is not positive or {@code delay} is negative
+   */
+  @NonNull
+  public static HedgePolicy fixedDelay(@NonNull final Duration delay, final int maxAttempts) {
+    return create(delay, maxAttempts, null);
+  }
+
+  /**
+   * Returns a policy starting another attempt once the specified percentile of the observed latencies passes
+   * without a result, scheduled on {@link Timer#shared()} and started on the default asynchronous executor.
+   *
+   * @param percentile the percentile, e.g. {@code 0.95} to hedge the slowest 5% of the calls
+   * @param initialDelay the delay used until enough latencies were observed
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @return the policy
+   * @throws IllegalArgumentException if {@code percentile} is not in range (0, 1], {@code maxAttempts} is not positive
+   *                                  or {@code initialDelay} is negative
+   */
+  @NonNull
+  public static HedgePolicy adaptive(final double percentile, @NonNull final Duration initialDelay, final int maxAttempts) {
+    if (!(percentile > 0 && percentile <= 1)) {
+      throw new IllegalArgumentException("Percentile must be in range (0, 1]: " + percentile);
+    }
+    return create(initialDelay, maxAttempts, new LatencyReservoir(percentile));
+  }
+
+  private static HedgePolicy create(@NonNull final Duration delay,
+                                    final int maxAttempts,
+                                    @Nullable final LatencyReservoir latencies) {
+    requireNonNull(delay);
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+    }
+    if (delay.isNegative()) {
+      throw new IllegalArgumentException("Delay must not be negative: " + delay);
+    }
+    return new HedgePolicy(maxAttempts, delay.toNanos(), latencies, Timer.shared(), CompletionResult.ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Returns a copy of this policy scheduling the attempts on the specified timer. Adaptive copies share
+   * the observed latencies with this policy.
+   *
+   * @param timer timer to schedule the attempts on
+   * @return the policy
+   */
+  @NonNull
+  public HedgePolicy withTimer(@NonNull final Timer timer) {
+    requireNonNull(timer);
+    return new HedgePolicy(maxAttempts, delayNanos, latencies, timer, executor);
+  }
+
+  /**
+   * Returns a copy of this policy invoking the supplier of the additional attempts on the specified executor.
+   * Adaptive copies share the observed latencies with this policy.
+   *
+   * @param executor executor to start the attempts on
+   * @return the policy
+   */
+  @NonNull
+  public HedgePolicy withExecutor(@NonNull final Executor executor) {
+    requireNonNull(executor);
+    return new HedgePolicy(maxAttempts, delayNanos, latencies, timer, executor);
+  }
+
+  /**
+   * Returns the delay before the next attempt.
+   *
+   * @return the delay
+   */
+  @NonNull
+  public Duration delay() {
+    return Duration.ofNanos(delayNanos());
+  }
+
+  int maxAttempts() {
+    return maxAttempts;
+  }
+
+  @NonNull
+  Timer timer() {
+    return timer;
+  }
+
+  @NonNull
+  Executor executor() {
+    return executor;
+  }
+
+  long delayNanos() {
+    if (latencies == null) {
+      return delayNanos;
+    }
+    final long percentileNanos = latencies.percentileNanos();
+    return percentileNanos < 0 ? delayNanos : percentileNanos;
+  }
+
+  void recordLatency(final long nanos) {
+    if (latencies != null) {
+      latencies.record(nanos);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "HedgePolicy{"
+           + "maxAttempts="
+           + maxAttempts
+           + ", delay="
+           + delay()
+           + ", adaptive="
+           + (latencies != null)
+           + '}';
+  }
+}
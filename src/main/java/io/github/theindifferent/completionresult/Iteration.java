@@ -0,0 +1,135 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Applies the step to the value until the predicate matches it, only holding the step in flight.
+ *
+ * <p>Steps completing synchronously, within {@code whenComplete()}, only store their outcome and count as missed;
+ * the loop on the stack picks it up, so the stack does not grow with the number of steps.
+ *
+ * @param <V> the class of the value
+ * @param <E> the enum class of the error
+ */
+final class Iteration<V, E extends Enum<E>> {
+
+  private final Promise<Result<V, E>> future = new Promise<>();
+  private final Function<V, CompletionResult<V, E>> step;
+  private final Predicate<V> until;
+  private final AtomicInteger wip = new AtomicInteger();
+  // outcome of the last step, published by the increment of wip:
+  @Nullable
+  private Result<V, E> outcome;
+  @Nullable
+  private Throwable failure;
+  // the step in flight, cancelled with the returned result:
+  @Nullable
+  private volatile CompletionResult<V, E> current;
+
+  private Iteration(@NonNull final Function<V, CompletionResult<V, E>> step, @NonNull final Predicate<V> until) {
+    this.step = step;
+    this.until = until;
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<V, E> iterate(@NonNull final V initial,
+                                                               @NonNull final Function<V, CompletionResult<V, E>> step,
+                                                               @NonNull final Predicate<V> until) {
+    final Iteration<V, E> iteration = new Iteration<>(step, until);
+    iteration.future.onCancel(iteration::cancelStep);
+    iteration.onStep(Result.forValue(initial), null);
+    return CompletionResult.forPromise(iteration.future);
+  }
+
+  private void onStep(@Nullable final Result<V, E> result, @Nullable final Throwable throwable) {
+    outcome = result;
+    failure = throwable;
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    do {
+      if (!next()) {
+        return;
+      }
+    } while (wip.decrementAndGet() != 0);
+  }
+
+  // handles the outcome of the last step, false once the iteration is over:
+  private boolean next() {
+    if (future.isDone()) {
+      // cancelled:
+      return false;
+    }
+    if (failure != null) {
+      CompletionResult.composeExceptionImpl(future, failure);
+      return false;
+    }
+    if (outcome == null || outcome.isError()) {
+      future.complete(outcome);
+      return false;
+    }
+    final V value = outcome.value();
+    final CompletionResult<V, E> stepped;
+    try {
+      if (until.test(value)) {
+        future.complete(outcome);
+        return false;
+      }
+      stepped = requireNonNull(step.apply(value));
+    } catch (final Throwable stepThrowable) {
+      CompletionResult.composeExceptionImpl(future, stepThrowable);
+      return false;
+    }
+    outcome = null;
+    current = stepped;
+    if (future.isCancelled()) {
+      // cancelled while the step ran, cancelStep() may have missed this one:
+      stepped.cancel();
+    }
+    stepped.whenComplete(this::onStep);
+    return true;
+  }
+
+  private void cancelStep() {
+    final CompletionResult<V, E> stepped = current;
+    if (stepped != null) {
+      stepped.cancel();
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free reservoir of the most recent latencies, with a percentile recomputed every {@code RECOMPUTE}
+ * samples, so that reading it costs a volatile read.
+ */
+final class LatencyReservoir {
+
+  private static final int SIZE = 256;
+  private static final int RECOMPUTE = 64;
+
+  private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+  private final AtomicLong count = new AtomicLong();
+  private final double percentile;
+  private volatile long percentileNanos = -1;
+
+  LatencyReservoir(final double percentile) {
+    this.percentile = percentile;
+  }
+
+  void record(final long nanos) {
+    final long index = count.getAndIncrement();
+    samples.set((int) (index % SIZE), nanos);
+    if ((index + 1) % RECOMPUTE == 0) {
+      recompute((int) Math.min(index + 1, SIZE));
+    }
+  }
+
+  /**
+   * Returns the percentile of the recorded latencies.
+   *
+   * @return the percentile in nanoseconds, {@code -1} until enough samples were recorded
+   */
+  long percentileNanos() {
+    return percentileNanos;
+  }
+
+  private void recompute(final int size) {
+    final long[] sorted = new long[size];
+    for (int index = 0; index < size; index++) {
+      sorted[index] = samples.get(index);
+    }
+    Arrays.sort(sorted);
+    final int rank = (int) Math.ceil(percentile * size) - 1;
+    percentileNanos = sorted[Math.max(0, Math.min(size - 1, rank))];
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Immutable copy of the metrics recorded under one name.
+ *
+ * <p>Latencies are reported as the highest value of their histogram bucket, at most 1/16 above the recorded one.
+ */
+public final class MetricsSnapshot {
+
+  private final String name;
+  private final long values;
+  private final long exceptions;
+  private final Map<Enum<?>, Long> errors;
+  private final long[] latencies;
+
+  MetricsSnapshot(@NonNull final String name,
+                  final long values,
+                  final long exceptions,
+                  @NonNull final Map<Enum<?>, Long> errors,
+                  @NonNull final long[] latencies) {
+    this.name = name;
+    this.values = values;
+    this.exceptions = exceptions;
+    this.errors = Collections.unmodifiableMap(errors);
+    this.latencies = latencies;
+  }
+
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the number of results completed with a value.
+   *
+   * @return the number of values
+   */
+  public long values() {
+    return values;
+  }
+
+  /**
+   * Returns the number of results completed exceptionally, including cancelled ones.
+   *
+   * @return the number of exceptions
+   */
+  public long exceptions() {
+    return exceptions;
+  }
+
+  /**
+   * Returns the number of results completed with each error, errors that did not occur are omitted.
+   *
+   * @return unmodifiable map of counts per error, in declaration order of the errors
+   */
+  public Map<Enum<?>, Long> errors() {
+    return errors;
+  }
+
+  /**
+   * Returns the number of results completed with the error.
+   *
+   * @param error the error
+   * @return the count, {@code 0} if the error did not occur
+   */
+  public long errors(final Enum<?> error) {
+    final Long count = errors.get(error);
+    return count == null ? 0 : count;
+  }
+
+  /**
+   * Returns the number of completed results.
+   *
+   * @return values, errors and exceptions together
+   */
+  public long count() {
+    long count = values + exceptions;
+    for (final Long errorCount : errors.values()) {
+      count += errorCount;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the completion latency at the percentile, e.g. {@code 99.9} for p999.
+   *
+   * @param percentile the percentile, in {@code [0, 100]}
+   * @return the latency, zero if nothing was recorded
+   * @throws IllegalArgumentException if the percentile is out of range
+   */
+  public Duration latency(final double percentile) {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("Percentile must be within [0, 100]: " + percentile);
+    }
+    return Duration.ofNanos(LatencyHistogram.valueAtPercentile(latencies, percentile));
+  }
+
+  @Override
+  public String toString() {
+    return "MetricsSnapshot{"
+           + "name="
+           + name
+           + ", values="
+           + values
+           + ", errors="
+           + errors
+           + ", exceptions="
+           + exceptions
+           + ", p50="
+           + latency(50)
+           + ", p99="
+           + latency(99)
+           + ", p999="
+           + latency(99.9)
+           + '}';
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Values and error counts of a group of results.
+ *
+ * @param <V> the class of the values
+ * @param <E> the enum class of the errors
+ */
+public final class Partition<V, E extends Enum<E>> {
+
+  private final List<V> values;
+  private final Map<E, Long> errorCounts;
+
+  Partition(@NonNull final List<V> values, @NonNull final EnumMap<E, Long> errorCounts) {
+    this.values = Collections.unmodifiableList(values);
+    this.errorCounts = Collections.unmodifiableMap(errorCounts);
+  }
+
+  /**
+   * Returns the values, in the order of the results that were partitioned.
+   *
+   * @return unmodifiable list of the values
+   */
+  @NonNull
+  public List<V> values() {
+    return values;
+  }
+
+  /**
+   * Returns the number of results per error code, errors that did not occur are absent.
+   *
+   * @return unmodifiable view of the {@code EnumMap} with error counts
+   */
+  @NonNull
+  public Map<E, Long> errorCounts() {
+    return errorCounts;
+  }
+
+  /**
+   * Returns the number of results with the specified error code.
+   *
+   * @param error error code
+   * @return the number of results with the error code
+   */
+  public long errorCount(@NonNull final E error) {
+    requireNonNull(error);
+    final Long count = errorCounts.get(error);
+    return count == null ? 0 : count;
+  }
+
+  @Override
+  public String toString() {
+    return "Partition{"
+           + "values="
+           + values
+           + ", errorCounts="
+           + errorCounts
+           + '}';
+  }
+}
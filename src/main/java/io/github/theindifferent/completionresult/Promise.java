@@ -0,0 +1,377 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Minimal promise backing pending {@code CompletionResult}s.
+ *
+ * <p>Compared to {@code CompletableFuture} it only supports completion callbacks: the first callback is stored
+ * as is, without a node, and further ones are pushed on a lock-free stack, run in the order they were added.
+ * Exceptions are stored as they are given, wrapping them is left to the callers.
+ *
+ * <p>Callbacks completing other promises run the callbacks of those right away, up to a bounded depth: deeper
+ * completions are deferred on a thread-local trampoline and run by the outermost completion once its own callbacks
+ * returned, so that arbitrarily long chains complete in bounded stack. The same thread-local bounds the nesting
+ * of the mappings that operators apply right away to completed results, see {@link Trampoline}. Blocking waits
+ * run the deferred callbacks of the current thread first, as those may be the ones completing the awaited promise.
+ *
+ * @param <T> the class of the value
+ */
+final class Promise<T> extends Dependents {
+
+  // value of the promises completed with null:
+  private static final Object NIL = new Object();
+  // callbacks of completed promises, new callbacks run right away:
+  private static final Object DONE = new Object();
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<Promise, Object> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "state");
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<Promise, Object> CALLBACKS =
+      AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "callbacks");
+
+  // null while pending, then NIL, a Failure or the value:
+  @Nullable
+  private volatile Object state;
+  // null, a single BiConsumer, a Node, or DONE:
+  @Nullable
+  private volatile Object callbacks;
+  @Nullable
+  private volatile CompletableFuture<T> adapter;
+
+  private static final ThreadLocal<Trampoline> TRAMPOLINE = ThreadLocal.withInitial(Trampoline::new);
+
+  boolean complete(@Nullable final T value) {
+    return settle(value == null ? NIL : value);
+  }
+
+  boolean fail(@NonNull final Throwable throwable) {
+    return settle(new Failure(throwable, false));
+  }
+
+  /**
+   * Fails the promise with a {@code CancellationException} and runs the cancellation hooks. Failing it with
+   * a {@code CancellationException}, as propagated from a cancelled source, does not run them.
+   *
+   * @return {@code true} if this call cancelled the promise
+   */
+  boolean cancel() {
+    return settle(new Failure(new CancellationException(), true));
+  }
+
+  boolean isDone() {
+    return state != null;
+  }
+
+  boolean isCancelled() {
+    final Object current = state;
+    return current instanceof Failure && ((Failure) current).cancelled;
+  }
+
+  /**
+   * Runs the hook if the promise gets cancelled, right away if it is cancelled.
+   *
+   * @param hook action to run on cancellation
+   */
+  void onCancel(@NonNull final Runnable hook) {
+    subscribe((value, throwable) -> {
+      if (isCancelled()) {
+        hook.run();
+      }
+    });
+  }
+
+  /**
+   * Runs the action once the promise completes, right away if it is completed.
+   *
+   * @param action action to run with the value or the exception
+   */
+  void subscribe(@NonNull final BiConsumer<? super T, ? super Throwable> action) {
+    while (true) {
+      final Object current = callbacks;
+      if (current == DONE) {
+        run(action, state);
+        return;
+      }
+      final Object updated = current == null ? action : new Node(action, current);
+      if (CALLBACKS.compareAndSet(this, current, updated)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the {@code CompletableFuture} view of this promise; cancelling it cancels the promise.
+   *
+   * @return completable future completed with this promise
+   */
+  @NonNull
+  CompletableFuture<T> toCompletableFuture() {
+    CompletableFuture<T> current = adapter;
+    if (current != null) {
+      return current;
+    }
+    final CompletableFuture<T> created = new Adapter<>();
+    subscribe((value, throwable) -> {
+      if (throwable == null) {
+        created.complete(value);
+      } else if (throwable instanceof CancellationException) {
+        created.cancel(false);
+      } else {
+        created.completeExceptionally(throwable);
+      }
+    });
+    created.whenComplete((value, throwable) -> {
+      if (created.isCancelled()) {
+        cancel();
+      }
+    });
+    // racing callers may each create an adapter, all of them mirror the promise:
+    adapter = created;
+    return created;
+  }
+
+  /**
+   * Returns the value, throwing the exception like {@link CompletableFuture#join()} if it failed.
+   *
+   * @return the value
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  T join() {
+    if (state == null) {
+      TRAMPOLINE.get().drain();
+      return toCompletableFuture().join();
+    }
+    final Object current = state;
+    if (current instanceof Failure) {
+      final Throwable throwable = ((Failure) current).throwable;
+      if (throwable instanceof CancellationException) {
+        throw (CancellationException) throwable;
+      }
+      if (throwable instanceof CompletionException) {
+        throw (CompletionException) throwable;
+      }
+      throw new CompletionException(throwable);
+    }
+    return current == NIL ? null : (T) current;
+  }
+
+  private boolean settle(@NonNull final Object outcome) {
+    if (!STATE.compareAndSet(this, null, outcome)) {
+      return false;
+    }
+    final Object pending = CALLBACKS.getAndSet(this, DONE);
+    if (pending == null) {
+      return true;
+    }
+    final Trampoline trampoline = TRAMPOLINE.get();
+    if (!trampoline.enter()) {
+      trampoline.defer(() -> runCallbacks(pending, outcome));
+      return true;
+    }
+    try {
+      runCallbacks(pending, outcome);
+    } finally {
+      trampoline.exit();
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runCallbacks(@NonNull final Object pending, @NonNull final Object outcome) {
+    if (pending instanceof Node) {
+      runAll((Node) pending, outcome);
+    } else {
+      run((BiConsumer<? super T, ? super Throwable>) pending, outcome);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runAll(@NonNull final Node stack, @NonNull final Object outcome) {
+    // reverse the stack, so that callbacks run in the order they were added:
+    Node reversed = null;
+    Object current = stack;
+    while (current instanceof Node) {
+      final Node node = (Node) current;
+      reversed = new Node(node.action, reversed);
+      current = node.next;
+    }
+    run((BiConsumer<? super T, ? super Throwable>) current, outcome);
+    for (Node node = reversed; node != null; node = (Node) node.next) {
+      run(node.action, outcome);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void run(@NonNull final BiConsumer<? super T, ? super Throwable> action, @NonNull final Object outcome) {
+    try {
+      if (outcome instanceof Failure) {
+        action.accept(null, ((Failure) outcome).throwable);
+      } else {
+        action.accept(outcome == NIL ? null : (T) outcome, null);
+      }
+    } catch (final Throwable ignore) {
+      // callbacks complete their own promises with their exceptions, a failing one must not starve the others
+    }
+  }
+
+  /**
+   * Trampoline of the current thread.
+   *
+   * <p>Operators of completed results apply their mappings right away, and mappings calling such operators, like
+   * recursive compositions, nest on the stack, as do callbacks completing other promises. Mappings and callbacks
+   * entered more than {@code MAX_NESTED} deep are deferred instead, and run by the outermost one once it returned,
+   * or by a blocking wait of the thread before it parks, so that the stack stays bounded.
+   */
+  static final class Trampoline {
+
+    private static final int MAX_NESTED = 64;
+
+    private final ArrayDeque<Runnable> deferred = new ArrayDeque<>();
+    private int nested;
+
+    @NonNull
+    static Trampoline current() {
+      return TRAMPOLINE.get();
+    }
+
+    /**
+     * Enters a mapping or callbacks applied right away, to be followed by {@link #exit()}.
+     *
+     * @return {@code false} if they are nested too deep and have to be passed to {@link #defer(Runnable)}
+     */
+    boolean enter() {
+      if (nested >= MAX_NESTED) {
+        return false;
+      }
+      nested++;
+      return true;
+    }
+
+    void defer(@NonNull final Runnable mapping) {
+      deferred.add(mapping);
+    }
+
+    void exit() {
+      if (nested > 1) {
+        nested--;
+        return;
+      }
+      // the outermost mapping returned, run the deferred ones, which may defer more of them:
+      drain();
+      nested = 0;
+    }
+
+    /**
+     * Runs the deferred mappings and callbacks right away, as the current thread is about to block.
+     */
+    void drain() {
+      Runnable mapping;
+      while ((mapping = deferred.poll()) != null) {
+        try {
+          mapping.run();
+        } catch (final Throwable ignore) {
+          // deferred mappings complete their own promises with their exceptions
+        }
+      }
+    }
+  }
+
+  // view of a promise, its blocking waits run the deferred callbacks of the current thread first:
+  private static final class Adapter<T> extends CompletableFuture<T> {
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+      beforeWait();
+      return super.get();
+    }
+
+    @Override
+    public T get(final long timeout, @NonNull final TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+      beforeWait();
+      return super.get(timeout, unit);
+    }
+
+    @Override
+    public T join() {
+      beforeWait();
+      return super.join();
+    }
+
+    private void beforeWait() {
+      if (!isDone()) {
+        TRAMPOLINE.get().drain();
+      }
+    }
+  }
+
+  private static final class Failure {
+
+    private final Throwable throwable;
+    // completed by cancel(), rather than failed with a propagated CancellationException:
+    private final boolean cancelled;
+
+    private Failure(@NonNull final Throwable throwable, final boolean cancelled) {
+      this.throwable = throwable;
+      this.cancelled = cancelled;
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static final class Node {
+
+    private final BiConsumer action;
+    // the next Node, or the first callback, a BiConsumer:
+    @Nullable
+    private final Object next;
+
+    private Node(@NonNull final BiConsumer action, @Nullable final Object next) {
+      this.action = action;
+      this.next = next;
+    }
+  }
+}
@@ -33,15 +33,36 @@ package io.github.theindifferent.completionresult;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.function.Consumer;
+import java.util.function.Function;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Value class holding either value of the operation, or enum code of error.
  *
+ * <p>Values and errors share one final class, tagged by the error field being {@code null}: accessors are
+ * monomorphic calls that inline at every call site, whatever mix of values and errors flows through it.
+ *
  * @param <V> the class of the value
  * @param <E> the enum class of the error
  */
-public interface Result<V, E extends Enum<E>> {
+public final class Result<V, E extends Enum<E>> {
+
+  // error results do not depend on the value class, one instance per constant is enough:
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static final EnumTable<Result<?, ?>> ERRORS = new EnumTable<>(error -> new Result(null, error));
+
+  // exactly one of the two is not null:
+  @Nullable
+  private final V value;
+  @Nullable
+  private final E error;
+
+  private Result(@Nullable final V value, @Nullable final E error) {
+    this.value = value;
+    this.error = error;
+  }
 
   /**
    * Returns a {@code Result} with the specified non-null value.
@@ -51,22 +72,25 @@ public interface Result<V, E extends Enum<E>> {
    * @param <E> the enum class of the error
    * @return {@code Result} instance holding the specified value instance
    */
-  static <V, E extends Enum<E>> Result<V, E> forValue(@NonNull final V value) {
+  public static <V, E extends Enum<E>> Result<V, E> forValue(@NonNull final V value) {
     requireNonNull(value);
-    return new ResultValue<>(value);
+    return new Result<>(value, null);
   }
 
   /**
    * Returns a {@code Result} with the specified non-null error.
    *
+   * <p>Error results are canonical, the same instance is returned for the same error code.
+   *
    * @param error error code
    * @param <V> the class of the value
    * @param <E> the enum class of the error
    * @return {@code Result} instance holding the specified error
    */
-  static <V, E extends Enum<E>> Result<V, E> forError(@NonNull final E error) {
+  @SuppressWarnings("unchecked")
+  public static <V, E extends Enum<E>> Result<V, E> forError(@NonNull final E error) {
     requireNonNull(error);
-    return new ResultError<>(error);
+    return (Result<V, E>) ERRORS.get(error);
   }
 
   /**
@@ -76,7 +100,12 @@ public interface Result<V, E extends Enum<E>> {
    * @throws IllegalStateException if {@code Result} is an error
    */
   @NonNull
-  V value() throws IllegalStateException;
+  public V value() throws IllegalStateException {
+    if (error != null) {
+      throw new IllegalStateException("Error result does not have value");
+    }
+    return value;
+  }
 
   /**
    * Returns the wrapped error code, never {@code null}.
@@ -85,18 +114,106 @@ public interface Result<V, E extends Enum<E>> {
    * @throws IllegalStateException if {@code Result} is a value
    */
   @NonNull
-  E error() throws IllegalStateException;
+  public E error() throws IllegalStateException {
+    if (error == null) {
+      throw new IllegalStateException("Successful result does not have error");
+    }
+    return error;
+  }
 
   /**
    * Returns {@code true} if the {@code Result} contains a value, {@code false} otherwise.
    * @return {@code true} if the {@code Result} contains a value, {@code false} otherwise
    */
-  boolean isValue();
+  public boolean isValue() {
+    return error == null;
+  }
 
   /**
    * Returns {@code true} if the {@code Result} contains an error code, {@code false} otherwise.
    * @return {@code true} if the {@code Result} contains an error code, {@code false} otherwise
    */
-  boolean isError();
+  public boolean isError() {
+    return error != null;
+  }
 
+  /**
+   * Returns the value, or {@code other} if the {@code Result} is an error. Never throws.
+   *
+   * @param other the value to return for errors
+   * @return the value or {@code other}
+   */
+  @Nullable
+  public V valueOr(@Nullable final V other) {
+    return error == null ? value : other;
+  }
+
+  /**
+   * Returns the error code, or {@code other} if the {@code Result} is a value. Never throws.
+   *
+   * @param other the error to return for values
+   * @return the error code or {@code other}
+   */
+  @Nullable
+  public E errorOr(@Nullable final E other) {
+    return error == null ? other : error;
+  }
+
+  /**
+   * Applies one of the functions, to the value or to the error code, and returns its result.
+   *
+   * @param valueMapping function applied to the value
+   * @param errorMapping function applied to the error code
+   * @param <R> the class of the result
+   * @return the result of the applied function
+   */
+  public <R> R fold(final Function<? super V, ? extends R> valueMapping, final Function<? super E, ? extends R> errorMapping) {
+    return error == null ? valueMapping.apply(value) : errorMapping.apply(error);
+  }
+
+  /**
+   * Passes the value or the error code to the matching consumer.
+   *
+   * @param valueConsumer consumer of the value
+   * @param errorConsumer consumer of the error code
+   */
+  public void ifValueOrElse(final Consumer<? super V> valueConsumer, final Consumer<? super E> errorConsumer) {
+    if (error == null) {
+      valueConsumer.accept(value);
+    } else {
+      errorConsumer.accept(error);
+    }
+  }
+
+  @Override
+  public boolean equals(@Nullable final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final Result<?, ?> that = (Result<?, ?>) o;
+    return error == that.error && (error != null || value.equals(that.value));
+  }
+
+  @Override
+  public int hashCode() {
+    // same as Objects.hash() of the held instance:
+    return 31 + (error == null ? value.hashCode() : error.hashCode());
+  }
+
+  @Override
+  public String toString() {
+    if (error != null) {
+      return "Result{"
+             + "error="
+             + error
+             + '}';
+    }
+    return "Result{"
+           + "value="
+           + value
+           + '}';
+  }
 }
@@ -0,0 +1,474 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Immutable batch of results stored by columns, without a {@code Result} instance per element.
+ *
+ * <p>Values are held in an {@code Object[]}, error codes by ordinal in a {@code byte[]}, or a {@code short[]} for
+ * enums of more than 256 constants, and a bitset tells which slots hold values. Bulk operations work on the
+ * columns: {@link #mapErrors(Class, Function)} maps every constant once, {@link #countByError()} counts into
+ * a {@code long[]}, and the mapped batches share the columns they do not change.
+ *
+ * @param <V> the class of the values
+ * @param <E> the enum class of the errors
+ */
+public final class ResultBatch<V, E extends Enum<E>> {
+
+  private static final int BYTE_ORDINALS = 256;
+
+  private final Class<E> errorType;
+  private final E[] constants;
+  // values of the value slots, null in the error slots:
+  private final Object[] values;
+  // ordinals of the errors of the error slots, zero in the value slots; exactly one of the two is not null:
+  @Nullable
+  private final byte[] byteOrdinals;
+  @Nullable
+  private final short[] shortOrdinals;
+  // bit i is set if slot i holds a value:
+  private final long[] present;
+  private final int valueCount;
+
+  private ResultBatch(@NonNull final Class<E> errorType,
+                      @NonNull final Object[] values,
+                      @Nullable final byte[] byteOrdinals,
+                      @Nullable final short[] shortOrdinals,
+                      @NonNull final long[] present,
+                      final int valueCount) {
+    this.errorType = errorType;
+    this.constants = errorType.getEnumConstants();
+    this.values = values;
+    this.byteOrdinals = byteOrdinals;
+    this.shortOrdinals = shortOrdinals;
+    this.present = present;
+    this.valueCount = valueCount;
+  }
+
+  // batch of the columns filled by the caller, the values tell which slots are values:
+  @NonNull
+  private static <V, E extends Enum<E>> ResultBatch<V, E> of(@NonNull final Class<E> errorType,
+                                                             @NonNull final Object[] values,
+                                                             @Nullable final byte[] byteOrdinals,
+                                                             @Nullable final short[] shortOrdinals) {
+    final long[] present = new long[(values.length + 63) >>> 6];
+    int valueCount = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        present[i >>> 6] |= 1L << i;
+        valueCount++;
+      }
+    }
+    return new ResultBatch<>(errorType, values, byteOrdinals, shortOrdinals, present, valueCount);
+  }
+
+  /**
+   * Returns a batch of the results, in iteration order.
+   *
+   * @param errorType the enum class of the errors
+   * @param results the results, not {@code null}
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return the batch
+   */
+  public static <V, E extends Enum<E>> ResultBatch<V, E> of(final Class<E> errorType, final Collection<Result<V, E>> results) {
+    requireNonNull(errorType);
+    final Columns columns = new Columns(errorType, results.size());
+    int index = 0;
+    for (final Result<V, E> result : results) {
+      columns.set(index++, requireNonNull(result));
+    }
+    return of(errorType, columns.values, columns.byteOrdinals, columns.shortOrdinals);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} of the batch of the results, once all of them completed.
+   *
+   * <p>The results are written into the columns as they complete, without keeping them. If one of them
+   * completes exceptionally, the batch completes with its exception; cancelling the batch cancels the results.
+   *
+   * @param errorType the enum class of the errors
+   * @param results the results, in the order of the batch
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return result of the batch
+   */
+  public static <V, E extends Enum<E>> CompletionResult<ResultBatch<V, E>, E> allOf(final Class<E> errorType,
+                                                                                    final Collection<CompletionResult<V, E>> results) {
+    requireNonNull(errorType);
+    final Columns columns = new Columns(errorType, results.size());
+    if (results.isEmpty()) {
+      return CompletionResult.forValue(of(errorType, columns.values, columns.byteOrdinals, columns.shortOrdinals));
+    }
+    final Promise<Result<ResultBatch<V, E>, E>> future = new Promise<>();
+    // slots are written by the completing threads, each to its own elements, and published by the countdown:
+    final AtomicInteger remaining = new AtomicInteger(results.size());
+    int index = 0;
+    for (final CompletionResult<V, E> result : results) {
+      final int slot = index++;
+      requireNonNull(result).whenComplete((res, throwable) -> {
+        if (throwable != null) {
+          CompletionResult.composeExceptionImpl(future, throwable);
+          return;
+        }
+        if (res == null) {
+          future.fail(new NullPointerException("Stage was completed with null result"));
+          return;
+        }
+        columns.set(slot, res);
+        if (remaining.decrementAndGet() == 0) {
+          future.complete(Result.forValue(of(errorType, columns.values, columns.byteOrdinals, columns.shortOrdinals)));
+        }
+      });
+    }
+    results.forEach(CompletionResult::addDependent);
+    future.onCancel(() -> results.forEach(CompletionResult::releaseDependent));
+    return CompletionResult.forPromise(future);
+  }
+
+  /**
+   * Returns a {@code CompletionResult} per slot of the batch, completed once the batch completes: with the result
+   * of the slot, or with the error or the exception of the whole batch.
+   *
+   * @param batch result of the batch
+   * @param size the number of slots of the batch
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return results of the slots
+   */
+  public static <V, E extends Enum<E>> List<CompletionResult<V, E>> unbatch(final CompletionResult<ResultBatch<V, E>, E> batch,
+                                                                            final int size) {
+    requireNonNull(batch);
+    if (size < 0) {
+      throw new IllegalArgumentException("Size must not be negative: " + size);
+    }
+    final List<Promise<Result<V, E>>> slots = new ArrayList<>(size);
+    final List<CompletionResult<V, E>> unbatched = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      final Promise<Result<V, E>> slot = new Promise<>();
+      slots.add(slot);
+      unbatched.add(CompletionResult.forPromise(slot));
+    }
+    batch.whenComplete((res, throwable) -> {
+      for (int i = 0; i < size; i++) {
+        final Promise<Result<V, E>> slot = slots.get(i);
+        if (throwable != null) {
+          CompletionResult.composeExceptionImpl(slot, throwable);
+        } else if (res == null) {
+          slot.fail(new NullPointerException("Stage was completed with null result"));
+        } else if (res.isError()) {
+          slot.complete(Result.forError(res.error()));
+        } else if (res.value().size() != size) {
+          slot.fail(new IllegalStateException("Batch of " + res.value().size() + " results for " + size + " slots"));
+        } else {
+          slot.complete(res.value().result(i));
+        }
+      }
+    });
+    return Collections.unmodifiableList(unbatched);
+  }
+
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Returns the number of slots holding values.
+   *
+   * @return the number of values
+   */
+  public int valueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns the number of slots holding errors.
+   *
+   * @return the number of errors
+   */
+  public int errorCount() {
+    return values.length - valueCount;
+  }
+
+  public boolean isValue(final int index) {
+    checkIndex(index);
+    return isPresent(index);
+  }
+
+  /**
+   * Returns the value of the slot.
+   *
+   * @param index index of the slot
+   * @return the value
+   * @throws IllegalStateException if the slot holds an error
+   */
+  @NonNull
+  @SuppressWarnings("unchecked")
+  public V value(final int index) throws IllegalStateException {
+    checkIndex(index);
+    if (!isPresent(index)) {
+      throw new IllegalStateException("Error result does not have value");
+    }
+    return (V) values[index];
+  }
+
+  /**
+   * Returns the error of the slot.
+   *
+   * @param index index of the slot
+   * @return the error code
+   * @throws IllegalStateException if the slot holds a value
+   */
+  @NonNull
+  public E error(final int index) throws IllegalStateException {
+    checkIndex(index);
+    if (isPresent(index)) {
+      throw new IllegalStateException("Successful result does not have error");
+    }
+    return constants[ordinal(index)];
+  }
+
+  /**
+   * Returns the result of the slot, creating it for values.
+   *
+   * @param index index of the slot
+   * @return the result
+   */
+  @NonNull
+  @SuppressWarnings("unchecked")
+  public Result<V, E> result(final int index) {
+    checkIndex(index);
+    return isPresent(index) ? Result.forValue((V) values[index]) : Result.forError(constants[ordinal(index)]);
+  }
+
+  /**
+   * Returns a batch with the values mapped, sharing the errors of this one.
+   *
+   * @param valueMapping mapping of the values to non-null instances
+   * @param <T> the class of the mapped values
+   * @return the mapped batch
+   */
+  @SuppressWarnings("unchecked")
+  public <T> ResultBatch<T, E> mapValues(final Function<V, T> valueMapping) {
+    requireNonNull(valueMapping);
+    final Object[] mapped = new Object[values.length];
+    for (int i = nextValue(0); i >= 0; i = nextValue(i + 1)) {
+      mapped[i] = requireNonNull(valueMapping.apply((V) values[i]), "Mapping returned null");
+    }
+    return new ResultBatch<>(errorType, mapped, byteOrdinals, shortOrdinals, present, valueCount);
+  }
+
+  /**
+   * Returns a batch with the errors mapped, sharing the values of this one. The mapping is applied once per
+   * error constant that occurs in the batch.
+   *
+   * @param mappedType the enum class of the mapped errors
+   * @param errorMapping mapping of the errors
+   * @param <F> the enum class of the mapped errors
+   * @return the mapped batch
+   */
+  public <F extends Enum<F>> ResultBatch<V, F> mapErrors(final Class<F> mappedType, final Function<E, F> errorMapping) {
+    requireNonNull(mappedType);
+    requireNonNull(errorMapping);
+    final int[] mappedOrdinals = new int[constants.length];
+    Arrays.fill(mappedOrdinals, -1);
+    final boolean bytes = mappedType.getEnumConstants().length <= BYTE_ORDINALS;
+    final byte[] mappedBytes = bytes ? new byte[values.length] : null;
+    final short[] mappedShorts = bytes ? null : new short[values.length];
+    for (int i = 0; i < values.length; i++) {
+      if (isPresent(i)) {
+        continue;
+      }
+      final int ordinal = ordinal(i);
+      int mapped = mappedOrdinals[ordinal];
+      if (mapped < 0) {
+        mapped = requireNonNull(errorMapping.apply(constants[ordinal]), "Mapping returned null").ordinal();
+        mappedOrdinals[ordinal] = mapped;
+      }
+      if (mappedBytes != null) {
+        mappedBytes[i] = (byte) mapped;
+      } else {
+        mappedShorts[i] = (short) mapped;
+      }
+    }
+    return new ResultBatch<>(mappedType, values, mappedBytes, mappedShorts, present, valueCount);
+  }
+
+  /**
+   * Returns the number of slots per error code.
+   *
+   * @return the error counts, errors that did not occur are absent
+   */
+  public EnumMap<E, Long> countByError() {
+    final long[] counts = new long[constants.length];
+    for (int i = 0; i < values.length; i++) {
+      if (!isPresent(i)) {
+        counts[ordinal(i)]++;
+      }
+    }
+    final EnumMap<E, Long> errorCounts = new EnumMap<>(errorType);
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        errorCounts.put(constants[i], counts[i]);
+      }
+    }
+    return errorCounts;
+  }
+
+  /**
+   * Passes the value or the error of every slot, in slot order, to the matching consumer.
+   *
+   * @param valueConsumer consumer of the values
+   * @param errorConsumer consumer of the errors
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(final Consumer<? super V> valueConsumer, final Consumer<? super E> errorConsumer) {
+    requireNonNull(valueConsumer);
+    requireNonNull(errorConsumer);
+    for (int i = 0; i < values.length; i++) {
+      if (isPresent(i)) {
+        valueConsumer.accept((V) values[i]);
+      } else {
+        errorConsumer.accept(constants[ordinal(i)]);
+      }
+    }
+  }
+
+  /**
+   * Passes the values, in slot order, to the consumer, skipping the errors.
+   *
+   * @param valueConsumer consumer of the values
+   */
+  @SuppressWarnings("unchecked")
+  public void forEachValue(final Consumer<? super V> valueConsumer) {
+    requireNonNull(valueConsumer);
+    for (int i = nextValue(0); i >= 0; i = nextValue(i + 1)) {
+      valueConsumer.accept((V) values[i]);
+    }
+  }
+
+  /**
+   * Returns a completed {@code CompletionResult} per slot.
+   *
+   * @return unmodifiable list of the results of the slots
+   */
+  public List<CompletionResult<V, E>> toCompletionResults() {
+    final List<CompletionResult<V, E>> results = new ArrayList<>(values.length);
+    for (int i = 0; i < values.length; i++) {
+      results.add(CompletionResult.forResult(result(i)));
+    }
+    return Collections.unmodifiableList(results);
+  }
+
+  private boolean isPresent(final int index) {
+    return (present[index >>> 6] & (1L << index)) != 0;
+  }
+
+  private int ordinal(final int index) {
+    return byteOrdinals != null ? byteOrdinals[index] & 0xFF : shortOrdinals[index] & 0xFFFF;
+  }
+
+  // index of the first value slot at or after the index, -1 if there is none:
+  private int nextValue(final int from) {
+    if (from >= values.length) {
+      return -1;
+    }
+    int word = from >>> 6;
+    long bits = present[word] & (-1L << from);
+    while (bits == 0) {
+      if (++word == present.length) {
+        return -1;
+      }
+      bits = present[word];
+    }
+    return (word << 6) + Long.numberOfTrailingZeros(bits);
+  }
+
+  private void checkIndex(final int index) {
+    if (index < 0 || index >= values.length) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of batch of " + values.length);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ResultBatch{"
+           + "size="
+           + values.length
+           + ", values="
+           + valueCount
+           + ", errorCounts="
+           + countByError()
+           + '}';
+  }
+
+  // columns being filled, every slot is written at most once:
+  private static final class Columns {
+
+    private final Object[] values;
+    @Nullable
+    private final byte[] byteOrdinals;
+    @Nullable
+    private final short[] shortOrdinals;
+
+    private Columns(@NonNull final Class<?> errorType, final int size) {
+      this.values = new Object[size];
+      final boolean bytes = errorType.getEnumConstants().length <= BYTE_ORDINALS;
+      this.byteOrdinals = bytes ? new byte[size] : null;
+      this.shortOrdinals = bytes ? null : new short[size];
+    }
+
+    private void set(final int index, @NonNull final Result<?, ?> result) {
+      if (result.isValue()) {
+        values[index] = result.value();
+      } else if (byteOrdinals != null) {
+        byteOrdinals[index] = (byte) result.error().ordinal();
+      } else {
+        shortOrdinals[index] = (short) result.error().ordinal();
+      }
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.Collector;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Stream collectors of {@link Result}s.
+ *
+ * <p>Errors are counted in {@code long[]} arrays indexed by {@link Enum#ordinal()}, which the combiners of parallel
+ * streams merge by adding them up; {@code Long}s are only created for the final {@code EnumMap}. The counting
+ * collectors are unordered. They are not concurrent: accumulating into a single shared container would need
+ * synchronization for every result, while every thread of a parallel stream fills its own one here.
+ */
+public final class ResultCollectors {
+
+  private ResultCollectors() {
+  }
+
+  /**
+   * Returns a collector of the values of the results, or the first error in encounter order if there is one.
+   *
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return collector of the list of the values in encounter order, or of the first error
+   */
+  public static <V, E extends Enum<E>> Collector<Result<V, E>, ?, Result<List<V>, E>> toValuesOrFirstError() {
+    return Collector.of(
+        ValuesOrError<V, E>::new,
+        ValuesOrError::accumulate,
+        ValuesOrError::combine,
+        ValuesOrError::finish);
+  }
+
+  /**
+   * Returns a collector of the values and of the number of results per error code.
+   *
+   * @param errorType the enum class of the errors
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return collector of the partition, the order of its values is unspecified for parallel streams
+   */
+  public static <V, E extends Enum<E>> Collector<Result<V, E>, ?, Partition<V, E>> partitioningByOutcome(final Class<E> errorType) {
+    requireNonNull(errorType);
+    final E[] constants = errorType.getEnumConstants();
+    return Collector.of(
+        () -> new Outcomes<V>(constants.length, true),
+        Outcomes::accumulate,
+        Outcomes::combine,
+        outcomes -> new Partition<>(outcomes.values, errorCounts(errorType, constants, outcomes.counts)),
+        Collector.Characteristics.UNORDERED);
+  }
+
+  /**
+   * Returns a collector of the number of results per error code, values are ignored.
+   *
+   * @param errorType the enum class of the errors
+   * @param <V> the class of the values
+   * @param <E> the enum class of the errors
+   * @return collector of the error counts, errors that did not occur are absent
+   */
+  public static <V, E extends Enum<E>> Collector<Result<V, E>, ?, EnumMap<E, Long>> groupingByError(final Class<E> errorType) {
+    requireNonNull(errorType);
+    final E[] constants = errorType.getEnumConstants();
+    return Collector.of(
+        () -> new Outcomes<V>(constants.length, false),
+        Outcomes::accumulate,
+        Outcomes::combine,
+        outcomes -> errorCounts(errorType, constants, outcomes.counts),
+        Collector.Characteristics.UNORDERED);
+  }
+
+  @NonNull
+  private static <E extends Enum<E>> EnumMap<E, Long> errorCounts(@NonNull final Class<E> errorType,
+                                                                 @NonNull final E[] constants,
+                                                                 @NonNull final long[] counts) {
+    final EnumMap<E, Long> errorCounts = new EnumMap<>(errorType);
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        errorCounts.put(constants[i], counts[i]);
+      }
+    }
+    return errorCounts;
+  }
+
+  private static final class ValuesOrError<V, E extends Enum<E>> {
+
+    private final List<V> values = new ArrayList<>();
+    @Nullable
+    private E error;
+
+    private void accumulate(@NonNull final Result<V, E> result) {
+      if (error != null) {
+        return;
+      }
+      if (result.isValue()) {
+        values.add(result.value());
+      } else {
+        error = result.error();
+        values.clear();
+      }
+    }
+
+    @NonNull
+    private ValuesOrError<V, E> combine(@NonNull final ValuesOrError<V, E> right) {
+      if (error != null) {
+        return this;
+      }
+      if (right.error != null) {
+        return right;
+      }
+      values.addAll(right.values);
+      return this;
+    }
+
+    @NonNull
+    private Result<List<V>, E> finish() {
+      return error != null ? Result.forError(error) : Result.forValue(values);
+    }
+  }
+
+  private static final class Outcomes<V> {
+
+    @Nullable
+    private final List<V> values;
+    private final long[] counts;
+
+    private Outcomes(final int errors, final boolean collectValues) {
+      this.values = collectValues ? new ArrayList<>() : null;
+      this.counts = new long[errors];
+    }
+
+    private void accumulate(@NonNull final Result<V, ?> result) {
+      if (result.isError()) {
+        counts[result.error().ordinal()]++;
+      } else if (values != null) {
+        values.add(result.value());
+      }
+    }
+
+    @NonNull
+    private Outcomes<V> combine(@NonNull final Outcomes<V> right) {
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] += right.counts[i];
+      }
+      if (values != null) {
+        values.addAll(right.values);
+      }
+      return this;
+    }
+  }
+}
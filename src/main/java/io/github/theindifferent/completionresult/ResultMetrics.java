@@ -0,0 +1,150 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Registry of outcome counters and latency histograms of instrumented results, by name.
+ *
+ * <p>Outcomes are counted in {@code LongAdder}s, errors in one per constant indexed by its ordinal, and
+ * latencies go into a fixed-memory log-bucketed histogram, so that recording takes no locks and the memory
+ * does not grow with the number of results. Use {@link #export(MetricsExporter)} to publish them.
+ *
+ * @see CompletionResult#instrument(String, ResultMetrics)
+ */
+public final class ResultMetrics {
+
+  private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+  private ResultMetrics() {
+  }
+
+  public static ResultMetrics create() {
+    return new ResultMetrics();
+  }
+
+  /**
+   * Passes a snapshot of every name recorded so far to the exporter. Recording continues meanwhile, the counts
+   * of a snapshot are not taken atomically.
+   *
+   * @param exporter the exporter
+   */
+  public void export(final MetricsExporter exporter) {
+    requireNonNull(exporter);
+    for (final Recorder recorder : recorders.values()) {
+      exporter.export(recorder.snapshot());
+    }
+  }
+
+  @NonNull
+  Recorder recorder(@NonNull final String name) {
+    final Recorder recorder = recorders.get(name);
+    return recorder != null ? recorder : recorders.computeIfAbsent(name, Recorder::new);
+  }
+
+  static final class Recorder {
+
+    private final String name;
+    private final LongAdder values = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    // the results of one name share their error type, the counters of the last one are cached:
+    private final ConcurrentMap<Class<?>, ErrorCounters> errors = new ConcurrentHashMap<>();
+    @Nullable
+    private volatile ErrorCounters lastErrors;
+
+    private Recorder(@NonNull final String name) {
+      this.name = name;
+    }
+
+    void record(final long latencyNanos, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+      latencies.record(latencyNanos);
+      if (throwable != null || result == null) {
+        exceptions.increment();
+      } else if (result.isValue()) {
+        values.increment();
+      } else {
+        final Enum<?> error = result.error();
+        errorCounters(error.getDeclaringClass()).counts[error.ordinal()].increment();
+      }
+    }
+
+    @NonNull
+    private ErrorCounters errorCounters(@NonNull final Class<?> type) {
+      ErrorCounters counters = lastErrors;
+      if (counters == null || counters.type != type) {
+        counters = errors.computeIfAbsent(type, ErrorCounters::new);
+        lastErrors = counters;
+      }
+      return counters;
+    }
+
+    @NonNull
+    MetricsSnapshot snapshot() {
+      final Map<Enum<?>, Long> errorCounts = new LinkedHashMap<>();
+      for (final ErrorCounters counters : errors.values()) {
+        for (int i = 0; i < counters.counts.length; i++) {
+          final long count = counters.counts[i].sum();
+          if (count != 0) {
+            errorCounts.put(counters.constants[i], count);
+          }
+        }
+      }
+      return new MetricsSnapshot(name, values.sum(), exceptions.sum(), errorCounts, latencies.counts());
+    }
+  }
+
+  private static final class ErrorCounters {
+
+    private final Class<?> type;
+    private final Enum<?>[] constants;
+    private final LongAdder[] counts;
+
+    private ErrorCounters(@NonNull final Class<?> type) {
+      this.type = type;
+      this.constants = (Enum<?>[]) type.getEnumConstants();
+      this.counts = new LongAdder[constants.length];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = new LongAdder();
+      }
+    }
+  }
+}
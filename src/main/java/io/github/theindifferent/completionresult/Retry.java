@@ -0,0 +1,139 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Invokes the supplier until it returns a value or a not retryable error, with delays scheduled on the timer
+ * of the policy; the timer task only hands the retry off to the executor of the policy.
+ *
+ * <p>Attempts never overlap: the next one is scheduled once the previous one completed, so the attempt counter
+ * needs no synchronization beyond the one of the completion.
+ *
+ * @param <V> the class of the value
+ * @param <E> the enum class of the error
+ */
+final class Retry<V, E extends Enum<E>> {
+
+  private final Promise<Result<V, E>> future = new Promise<>();
+  private final Supplier<CompletionResult<V, E>> supplier;
+  private final Set<E> retryable;
+  private final RetryPolicy policy;
+  private int attempts;
+  // the attempt in flight, cancelled with the returned result:
+  @Nullable
+  private volatile CompletionResult<V, E> current;
+
+  private Retry(@NonNull final Supplier<CompletionResult<V, E>> supplier,
+                @NonNull final Set<E> retryable,
+                @NonNull final RetryPolicy policy) {
+    this.supplier = supplier;
+    this.retryable = retryable;
+    this.policy = policy;
+  }
+
+  static <V, E extends Enum<E>> CompletionResult<V, E> retry(@NonNull final Supplier<CompletionResult<V, E>> supplier,
+                                                             @NonNull final Set<E> retryable,
+                                                             @NonNull final RetryPolicy policy) {
+    final RetryBudget budget = policy.budget();
+    if (budget != null) {
+      budget.deposit();
+    }
+    final Retry<V, E> retry = new Retry<>(supplier, retryable, policy);
+    retry.future.onCancel(retry::cancelAttempt);
+    retry.attempt();
+    return CompletionResult.forPromise(retry.future);
+  }
+
+  private void attempt() {
+    // the returned result was cancelled:
+    if (future.isDone()) {
+      return;
+    }
+    attempts++;
+    final CompletionResult<V, E> attempt;
+    try {
+      attempt = requireNonNull(supplier.get());
+    } catch (final Throwable supplierThrowable) {
+      CompletionResult.composeExceptionImpl(future, supplierThrowable);
+      return;
+    }
+    current = attempt;
+    if (future.isCancelled()) {
+      // cancelled while the supplier ran, cancelAttempt() may have missed this one:
+      attempt.cancel();
+    }
+    attempt.whenComplete(this::onAttempt);
+  }
+
+  private void cancelAttempt() {
+    final CompletionResult<V, E> attempt = current;
+    if (attempt != null) {
+      attempt.cancel();
+    }
+  }
+
+  private void onAttempt(@Nullable final Result<V, E> result, @Nullable final Throwable throwable) {
+    if (throwable != null) {
+      CompletionResult.composeExceptionImpl(future, throwable);
+      return;
+    }
+    if (result == null || result.isValue() || !retryable.contains(result.error()) || !mayRetry()) {
+      future.complete(result);
+      return;
+    }
+    try {
+      policy.timer().schedule(this::dispatch, policy.delayNanos(attempts), TimeUnit.NANOSECONDS);
+    } catch (final Throwable timerThrowable) {
+      CompletionResult.composeExceptionImpl(future, timerThrowable);
+    }
+  }
+
+  private void dispatch() {
+    CompletionResult.execute(policy.executor(), future, this::attempt);
+  }
+
+  private boolean mayRetry() {
+    if (attempts >= policy.maxAttempts()) {
+      return false;
+    }
+    final RetryBudget budget = policy.budget();
+    return budget == null || budget.tryWithdraw();
+  }
+}
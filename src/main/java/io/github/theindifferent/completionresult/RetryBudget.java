@@ -0,0 +1,116 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting retries to a fraction of the requests, shared by all the retries it is set on.
+ *
+ * <p>Every first attempt deposits {@code retryRatio} tokens, up to {@code maxTokens}, and every retry withdraws
+ * one. When the backend fails for all requests, the retries add at most {@code retryRatio} load on top of
+ * the requests instead of multiplying it by the number of attempts.
+ */
+public final class RetryBudget {
+
+  // tokens are stored in thousandths, to deposit fractions without floating point atomics:
+  private static final long SCALE = 1000;
+
+  private final long maxTokens;
+  private final long deposit;
+  private final AtomicLong tokens;
+
+  private RetryBudget(final long maxTokens, final long deposit) {
+    this.maxTokens = maxTokens;
+    this.deposit = deposit;
+    this.tokens = new AtomicLong(maxTokens);
+  }
+
+  /**
+   * Returns a new budget, initially full.
+   *
+   * @param maxTokens the maximum number of retries the budget can hold
+   * @param retryRatio tokens deposited by every first attempt, e.g. {@code 0.1} for one retry per ten requests
+   * @return the budget
+   * @throws IllegalArgumentException if {@code maxTokens} is not positive or {@code retryRatio} is negative
+   */
+  public static RetryBudget create(final int maxTokens, final double retryRatio) {
+    if (maxTokens <= 0) {
+      throw new IllegalArgumentException("Max tokens must be positive: " + maxTokens);
+    }
+    if (!(retryRatio >= 0)) {
+      throw new IllegalArgumentException("Retry ratio must not be negative: " + retryRatio);
+    }
+    return new RetryBudget(maxTokens * SCALE, Math.round(retryRatio * SCALE));
+  }
+
+  /**
+   * Returns the number of retries the budget currently allows.
+   *
+   * @return the number of whole tokens
+   */
+  public long available() {
+    return tokens.get() / SCALE;
+  }
+
+  void deposit() {
+    if (deposit == 0) {
+      return;
+    }
+    long current;
+    do {
+      current = tokens.get();
+      if (current >= maxTokens) {
+        return;
+      }
+    } while (!tokens.compareAndSet(current, Math.min(maxTokens, current + deposit)));
+  }
+
+  boolean tryWithdraw() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < SCALE) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - SCALE));
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "RetryBudget{"
+           + "available="
+           + available()
+           + '}';
+  }
+}
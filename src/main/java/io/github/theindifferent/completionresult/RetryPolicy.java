@@ -0,0 +1,219 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Immutable policy of {@link CompletionResult#retryOnError(java.util.function.Supplier, java.util.Set, RetryPolicy)}:
+ * the number of attempts, the exponential backoff between them, its jitter and the retry budget.
+ *
+ * <p>The delays are scheduled on a timer, which only hands the retries off to the executor invoking the supplier,
+ * so that slow suppliers do not hold up the other tasks of the timer.
+ */
+public final class RetryPolicy {
+
+  private final int maxAttempts;
+  private final long initialDelayNanos;
+  private final long maxDelayNanos;
+  private final double multiplier;
+  private final double jitter;
+  @Nullable
+  private final RetryBudget budget;
+  @NonNull
+  private final Timer timer;
+  @NonNull
+  private final Executor executor;
+
+  private RetryPolicy(final int maxAttempts,
+                      final long initialDelayNanos,
+                      final long maxDelayNanos,
+                      final double multiplier,
+                      final double jitter,
+                      @Nullable final RetryBudget budget,
+                      @NonNull final Timer timer,
+                      @NonNull final Executor executor) {
+    this.maxAttempts = maxAttempts;
+    this.initialDelayNanos = initialDelayNanos;
+    this.maxDelayNanos = maxDelayNanos;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.budget = budget;
+    this.timer = timer;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns a policy doubling the delay after every attempt, up to the maximum delay, with full jitter
+   * and without a budget, scheduled on {@link Timer#shared()} and retried on the default asynchronous executor.
+   *
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param initialDelay the delay before the first retry
+   * @param maxDelay the maximum delay between attempts
+   * @return the policy
+   * @throws IllegalArgumentException if {@code maxAttempts} is not positive or a delay is negative
+   */
+  @NonNull
+  public static RetryPolicy exponentialBackoff(final int maxAttempts,
+                                               @NonNull final Duration initialDelay,
+                                               @NonNull final Duration maxDelay) {
+    requireNonNull(initialDelay);
+    requireNonNull(maxDelay);
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+    }
+    if (initialDelay.isNegative() || maxDelay.isNegative()) {
+      throw new IllegalArgumentException("Delays must not be negative: " + initialDelay + ", " + maxDelay);
+    }
+    return new RetryPolicy(
+        maxAttempts, initialDelay.toNanos(), maxDelay.toNanos(), 2, 1, null, Timer.shared(), CompletionResult.ASYNC_EXECUTOR);
+  }
+
+  /**
+   * Returns a copy of this policy with the specified factor applied to the delay after every attempt.
+   *
+   * @param multiplier the factor, at least {@code 1}
+   * @return the policy
+   * @throws IllegalArgumentException if {@code multiplier} is less than {@code 1}
+   */
+  @NonNull
+  public RetryPolicy withMultiplier(final double multiplier) {
+    if (!(multiplier >= 1)) {
+      throw new IllegalArgumentException("Multiplier must be at least 1: " + multiplier);
+    }
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, budget, timer, executor);
+  }
+
+  /**
+   * Returns a copy of this policy with the specified jitter: the fraction of the delay that is randomized,
+   * {@code 0} for fixed delays, {@code 1} for delays uniformly distributed between zero and the backoff.
+   *
+   * @param jitter the fraction of the delay to randomize
+   * @return the policy
+   * @throws IllegalArgumentException if {@code jitter} is not in range [0, 1]
+   */
+  @NonNull
+  public RetryPolicy withJitter(final double jitter) {
+    if (!(jitter >= 0 && jitter <= 1)) {
+      throw new IllegalArgumentException("Jitter must be in range [0, 1]: " + jitter);
+    }
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, budget, timer, executor);
+  }
+
+  /**
+   * Returns a copy of this policy limiting the retries with the specified budget.
+   *
+   * @param budget the budget, usually shared by all the calls to the same backend
+   * @return the policy
+   */
+  @NonNull
+  public RetryPolicy withBudget(@NonNull final RetryBudget budget) {
+    requireNonNull(budget);
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, budget, timer, executor);
+  }
+
+  /**
+   * Returns a copy of this policy scheduling the delays on the specified timer.
+   *
+   * @param timer timer to schedule the delays on
+   * @return the policy
+   */
+  @NonNull
+  public RetryPolicy withTimer(@NonNull final Timer timer) {
+    requireNonNull(timer);
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, budget, timer, executor);
+  }
+
+  /**
+   * Returns a copy of this policy invoking the supplier of the retries on the specified executor.
+   *
+   * @param executor executor to retry on
+   * @return the policy
+   */
+  @NonNull
+  public RetryPolicy withExecutor(@NonNull final Executor executor) {
+    requireNonNull(executor);
+    return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, budget, timer, executor);
+  }
+
+  int maxAttempts() {
+    return maxAttempts;
+  }
+
+  @Nullable
+  RetryBudget budget() {
+    return budget;
+  }
+
+  @NonNull
+  Timer timer() {
+    return timer;
+  }
+
+  @NonNull
+  Executor executor() {
+    return executor;
+  }
+
+  // delay before the specified retry, the first retry being 1:
+  long delayNanos(final int retry) {
+    final double backoff = Math.min(maxDelayNanos, initialDelayNanos * Math.pow(multiplier, retry - 1));
+    if (jitter == 0) {
+      return (long) backoff;
+    }
+    return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+  }
+
+  @Override
+  public String toString() {
+    return "RetryPolicy{"
+           + "maxAttempts="
+           + maxAttempts
+           + ", initialDelay="
+           + Duration.ofNanos(initialDelayNanos)
+           + ", maxDelay="
+           + Duration.ofNanos(maxDelayNanos)
+           + ", multiplier="
+           + multiplier
+           + ", jitter="
+           + jitter
+           + ", budget="
+           + budget
+           + '}';
+  }
+}
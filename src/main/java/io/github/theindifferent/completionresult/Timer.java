@@ -0,0 +1,98 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Schedules delayed tasks, used for timeouts and delays of {@code CompletionResult} operators.
+ *
+ * <p>Tasks are expected to be short, usually they only complete a result; the callbacks of the completed
+ * result run on the thread of the timer unless async operators are used.
+ */
+public interface Timer {
+
+  /**
+   * Returns the timer shared by default, a {@link HashedWheelTimer} with a daemon worker thread,
+   * started on the first use.
+   *
+   * @return the shared timer
+   */
+  @NonNull
+  static Timer shared() {
+    return HashedWheelTimer.shared();
+  }
+
+  /**
+   * Returns a timer scheduling tasks on the specified executor.
+   *
+   * @param executor executor to schedule tasks on
+   * @return the timer backed by the executor
+   */
+  @NonNull
+  static Timer forScheduledExecutor(@NonNull final ScheduledExecutorService executor) {
+    requireNonNull(executor);
+    return (task, delay, unit) -> {
+      final ScheduledFuture<?> future = executor.schedule(task, delay, unit);
+      return () -> future.cancel(false);
+    };
+  }
+
+  /**
+   * Schedules the task to run once after the specified delay.
+   *
+   * @param task task to run
+   * @param delay the delay, not positive delays run the task as soon as possible
+   * @param unit the unit of the delay
+   * @return handle to cancel the task
+   */
+  @NonNull
+  Timeout schedule(@NonNull Runnable task, long delay, @NonNull TimeUnit unit);
+
+  /**
+   * Handle of a scheduled task.
+   */
+  interface Timeout {
+
+    /**
+     * Cancels the task if it did not run yet.
+     *
+     * @return {@code true} if the task was cancelled, {@code false} if it already ran or was cancelled
+     */
+    boolean cancel();
+  }
+}
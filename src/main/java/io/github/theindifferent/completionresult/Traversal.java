@@ -0,0 +1,219 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Maps inputs to results with at most the specified number of results in flight.
+ *
+ * <p>The iterator of inputs is only advanced by the drain loop, which is entered by one thread at a time;
+ * results completing while the loop runs, including synchronously completed ones, only mark it as missed,
+ * so the stack does not grow with the number of inputs.
+ *
+ * @param <A> the class of the inputs
+ * @param <V> the class of the values
+ * @param <E> the enum class of the error
+ */
+final class Traversal<A, V, E extends Enum<E>> {
+
+  private final Promise<Result<List<Object>, E>> future = new Promise<>();
+  private final Iterator<A> inputs;
+  private final Function<A, CompletionResult<V, E>> mapping;
+  private final int maxConcurrency;
+  private final boolean ordered;
+  private final boolean failFast;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger wip = new AtomicInteger();
+  // results in flight, at most maxConcurrency, released once the returned result completes before them; the traversal
+  // is one of their dependents, mappings may return results shared with other dependents, which keep them running:
+  private final Set<CompletionResult<V, E>> inFlight = ConcurrentHashMap.newKeySet();
+  // ordered traversal, only accessed by the drain loop:
+  private final List<Slot> slots;
+  // unordered traversal:
+  private final Queue<Object> completed;
+  private boolean exhausted;
+
+  private Traversal(@NonNull final Iterator<A> inputs,
+                    @NonNull final Function<A, CompletionResult<V, E>> mapping,
+                    final int maxConcurrency,
+                    final boolean ordered,
+                    final boolean failFast) {
+    this.inputs = inputs;
+    this.mapping = mapping;
+    this.maxConcurrency = maxConcurrency;
+    this.ordered = ordered;
+    this.failFast = failFast;
+    this.slots = ordered ? new ArrayList<>() : null;
+    this.completed = ordered ? null : new ConcurrentLinkedQueue<>();
+  }
+
+  /**
+   * Starts the traversal.
+   *
+   * @param failFast {@code true} to complete with the first error, {@code false} to collect all results
+   * @return result holding values if {@code failFast} is set, results otherwise
+   */
+  static <A, V, E extends Enum<E>> CompletionResult<List<Object>, E> traverse(@NonNull final Iterable<A> inputs,
+                                                                              @NonNull final Function<A, CompletionResult<V, E>> mapping,
+                                                                              final int maxConcurrency,
+                                                                              final boolean ordered,
+                                                                              final boolean failFast) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+    }
+    final Traversal<A, V, E> traversal = new Traversal<>(inputs.iterator(), mapping, maxConcurrency, ordered, failFast);
+    // the first error or exception, or a cancellation, leaves the results in flight without use:
+    traversal.future.subscribe((res, throwable) -> traversal.cancelInFlight());
+    traversal.drain();
+    return CompletionResult.forPromise(traversal.future);
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      while (!exhausted && !future.isDone() && active.get() < maxConcurrency) {
+        final A input;
+        try {
+          if (!inputs.hasNext()) {
+            exhausted = true;
+            break;
+          }
+          input = inputs.next();
+        } catch (final Throwable iterationThrowable) {
+          // the loop may run in a callback of a completed result, which would drop the exception:
+          exhausted = true;
+          CompletionResult.composeExceptionImpl(future, iterationThrowable);
+          break;
+        }
+        launch(input);
+      }
+      if (exhausted && active.get() == 0) {
+        finish();
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void launch(@Nullable final A input) {
+    final Slot slot;
+    if (ordered) {
+      slot = new Slot();
+      slots.add(slot);
+    } else {
+      slot = null;
+    }
+    active.incrementAndGet();
+    final CompletionResult<V, E> mapped;
+    try {
+      mapped = mapping.apply(input);
+    } catch (final Throwable mappingThrowable) {
+      CompletionResult.composeExceptionImpl(future, mappingThrowable);
+      return;
+    }
+    if (mapped == null) {
+      future.fail(new NullPointerException("Mapping returned null"));
+      return;
+    }
+    mapped.addDependent();
+    inFlight.add(mapped);
+    if (future.isDone() && inFlight.remove(mapped)) {
+      // completed while the mapping ran, cancelInFlight() may have missed this one:
+      mapped.releaseDependent();
+    }
+    mapped.whenComplete((res, throwable) -> {
+      inFlight.remove(mapped);
+      onComplete(slot, res, throwable);
+    });
+  }
+
+  private void cancelInFlight() {
+    for (final CompletionResult<V, E> mapped : inFlight) {
+      if (inFlight.remove(mapped)) {
+        mapped.releaseDependent();
+      }
+    }
+  }
+
+  private void onComplete(@Nullable final Slot slot, @Nullable final Result<V, E> result, @Nullable final Throwable throwable) {
+    if (throwable != null) {
+      CompletionResult.composeExceptionImpl(future, throwable);
+    } else if (result == null) {
+      future.fail(new NullPointerException("Stage was completed with null result"));
+    } else if (failFast && result.isError()) {
+      future.complete(Result.forError(result.error()));
+    } else {
+      final Object outcome = failFast ? result.value() : result;
+      if (slot != null) {
+        slot.outcome = outcome;
+      } else {
+        completed.add(outcome);
+      }
+    }
+    // publishes the outcome to the drain loop:
+    active.decrementAndGet();
+    drain();
+  }
+
+  private void finish() {
+    if (future.isDone()) {
+      return;
+    }
+    final List<Object> outcomes;
+    if (ordered) {
+      outcomes = new ArrayList<>(slots.size());
+      for (final Slot slot : slots) {
+        outcomes.add(slot.outcome);
+      }
+    } else {
+      outcomes = new ArrayList<>(completed);
+    }
+    future.complete(Result.forValue(outcomes));
+  }
+
+  private static final class Slot {
+    private Object outcome;
+  }
+}
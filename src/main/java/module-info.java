@@ -1,4 +1,5 @@
 module io.github.theindifferent.completionresult {
   requires static org.checkerframework.checker.qual;
+  requires static jdk.jfr;
   exports io.github.theindifferent.completionresult;
 }
@@ -0,0 +1,95 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Java Flight Recorder events of results, Java 11 version.
+ *
+ * <p>The {@code jdk.jfr} module is optional: images built without it, or runs limiting the modules, do not
+ * have it, so the events are recorded by {@link JfrEvents}, which is only loaded when the module is present.
+ * Without it no event is started, like on Java 8.
+ */
+final class FlightEvents {
+
+  private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+  private FlightEvents() {
+  }
+
+  /**
+   * Starts the stage event of a traced result.
+   *
+   * @param step name of the traced step
+   * @return the started event, {@code null} if it is not recorded
+   */
+  @Nullable
+  static Object stageStarted(@NonNull final String step) {
+    if (!AVAILABLE) {
+      return null;
+    }
+    try {
+      return JfrEvents.stageStarted(step);
+    } catch (final LinkageError unavailable) {
+      // the events could not be loaded, results are traced without them:
+      return null;
+    }
+  }
+
+  static void stageCompleted(@NonNull final Object stage, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+    JfrEvents.stageCompleted(stage, result, throwable);
+  }
+
+  /**
+   * Starts the event of a compose hop, from the call of the mapping to the completion of its result.
+   *
+   * @param mapping the mapping of the compose operator
+   * @return the started event, {@code null} if it is not recorded
+   */
+  @Nullable
+  static Object composeStarted(@NonNull final Object mapping) {
+    if (!AVAILABLE) {
+      return null;
+    }
+    try {
+      return JfrEvents.composeStarted(mapping);
+    } catch (final LinkageError unavailable) {
+      return null;
+    }
+  }
+
+  static void composeCompleted(@NonNull final Object hop, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+    JfrEvents.composeCompleted(hop, result, throwable);
+  }
+}
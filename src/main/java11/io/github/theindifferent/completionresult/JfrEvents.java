@@ -0,0 +1,192 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Java Flight Recorder events of results, only loaded by {@link FlightEvents} when the {@code jdk.jfr} module
+ * is present.
+ *
+ * <p>Durations are recorded only above the threshold of the event, 10 ms by default, which can be changed
+ * in the recording settings like for the JDK events, e.g. {@code io.github.theindifferent.completionresult.Stage#threshold=1 ms}.
+ * Disabled events cost a check of a static flag, no event is allocated and no callback is registered.
+ */
+final class JfrEvents {
+
+  // the enabled state is shared by all instances of an event class:
+  private static final StageCreatedEvent STAGE_CREATED = new StageCreatedEvent();
+  private static final StageEvent STAGE = new StageEvent();
+  private static final ComposeEvent COMPOSE = new ComposeEvent();
+
+  private JfrEvents() {
+  }
+
+  /**
+   * Starts the stage event of a traced result.
+   *
+   * @param step name of the traced step
+   * @return the started event, {@code null} if it is not recorded
+   */
+  @Nullable
+  static Object stageStarted(@NonNull final String step) {
+    if (STAGE_CREATED.isEnabled()) {
+      final StageCreatedEvent created = new StageCreatedEvent();
+      created.step = step;
+      created.commit();
+    }
+    if (!STAGE.isEnabled()) {
+      return null;
+    }
+    final StageEvent stage = new StageEvent();
+    stage.step = step;
+    stage.begin();
+    return stage;
+  }
+
+  static void stageCompleted(@NonNull final Object stage, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+    final StageEvent event = (StageEvent) stage;
+    event.end();
+    if (event.shouldCommit()) {
+      event.outcome = outcome(result, throwable);
+      event.error = error(result);
+      event.exception = exception(throwable);
+      event.commit();
+    }
+  }
+
+  /**
+   * Starts the event of a compose hop, from the call of the mapping to the completion of its result.
+   *
+   * @param mapping the mapping of the compose operator
+   * @return the started event, {@code null} if it is not recorded
+   */
+  @Nullable
+  static Object composeStarted(@NonNull final Object mapping) {
+    if (!COMPOSE.isEnabled()) {
+      return null;
+    }
+    final ComposeEvent hop = new ComposeEvent();
+    hop.mapping = mapping.getClass();
+    hop.begin();
+    return hop;
+  }
+
+  static void composeCompleted(@NonNull final Object hop, @Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+    final ComposeEvent event = (ComposeEvent) hop;
+    event.end();
+    if (event.shouldCommit()) {
+      event.outcome = outcome(result, throwable);
+      event.error = error(result);
+      event.exception = exception(throwable);
+      event.commit();
+    }
+  }
+
+  @NonNull
+  private static String outcome(@Nullable final Result<?, ?> result, @Nullable final Throwable throwable) {
+    if (throwable != null || result == null) {
+      return "exception";
+    }
+    return result.isValue() ? "value" : "error";
+  }
+
+  @Nullable
+  private static String error(@Nullable final Result<?, ?> result) {
+    if (result == null || result.isValue()) {
+      return null;
+    }
+    final Enum<?> error = result.error();
+    return error.getDeclaringClass().getSimpleName() + '.' + error.name();
+  }
+
+  @Nullable
+  private static Class<?> exception(@Nullable final Throwable throwable) {
+    return throwable == null ? null : throwable.getClass();
+  }
+
+  @Name("io.github.theindifferent.completionresult.StageCreated")
+  @Label("CompletionResult Stage Created")
+  @Category("CompletionResult")
+  @Description("A traced result was created, the stack trace shows where")
+  @Enabled(false)
+  static final class StageCreatedEvent extends Event {
+
+    @Label("Step")
+    String step;
+  }
+
+  @Name("io.github.theindifferent.completionresult.Stage")
+  @Label("CompletionResult Stage")
+  @Category("CompletionResult")
+  @Description("A traced result completed, the duration is the time from tracing to completion")
+  @Threshold("10 ms")
+  @StackTrace(false)
+  static final class StageEvent extends Event {
+
+    @Label("Step")
+    String step;
+    @Label("Outcome")
+    String outcome;
+    @Label("Error")
+    String error;
+    @Label("Exception")
+    Class<?> exception;
+  }
+
+  @Name("io.github.theindifferent.completionresult.Compose")
+  @Label("CompletionResult Compose")
+  @Category("CompletionResult")
+  @Description("The result of a compose mapping completed, the duration is the time from calling the mapping to completion")
+  @Threshold("10 ms")
+  @StackTrace(false)
+  static final class ComposeEvent extends Event {
+
+    @Label("Mapping")
+    Class<?> mapping;
+    @Label("Outcome")
+    String outcome;
+    @Label("Error")
+    String error;
+    @Label("Exception")
+    Class<?> exception;
+  }
+}
@@ -31,62 +31,31 @@
  */
 package io.github.theindifferent.completionresult;
 
-import java.util.Objects;
-import org.checkerframework.checker.nullness.qual.NonNull;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-class ResultValue<V, E extends Enum<E>> implements Result<V, E> {
-
-  private final V value;
-
-  ResultValue(final V value) {
-    this.value = value;
-  }
-
-  @NonNull
-  @Override
-  public V value() {
-    return value;
-  }
-
-  @NonNull
-  @Override
-  public E error() {
-    throw new IllegalStateException("Successful result does not have error");
-  }
-
-  @Override
-  public boolean isValue() {
-    return true;
-  }
+/**
+ * Access to virtual threads, Java 21 version.
+ */
+final class VirtualThreads {
 
-  @Override
-  public boolean isError() {
-    return false;
-  }
+  private static final ThreadFactory FACTORY = Thread.ofVirtual()
+      .name("completionresult-virtual-", 0)
+      .factory();
 
-  @Override
-  public boolean equals(@Nullable final Object o) {
-    if (this == o) {
-      return true;
-    }
-    if (o == null || getClass() != o.getClass()) {
-      return false;
-    }
-    final ResultValue<?, ?> that = (ResultValue<?, ?>) o;
-    return Objects.equals(value, that.value);
-  }
+  private static final Executor EXECUTOR = runnable -> FACTORY.newThread(runnable).start();
 
-  @Override
-  public int hashCode() {
-    return Objects.hash(value);
+  private VirtualThreads() {
   }
 
-  @Override
-  public String toString() {
-    return "Result{"
-           + "value="
-           + value
-           + '}';
+  /**
+   * Returns the executor starting a new virtual thread for every task.
+   *
+   * @return the executor of virtual threads
+   */
+  @Nullable
+  static Executor executor() {
+    return EXECUTOR;
   }
 }
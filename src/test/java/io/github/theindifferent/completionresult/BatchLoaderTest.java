@@ -0,0 +1,161 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class BatchLoaderTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final List<Runnable> scheduled = new ArrayList<>();
+  private final Timer timer = (task, delay, unit) -> {
+    scheduled.add(task);
+    return () -> scheduled.remove(task);
+  };
+  private final List<List<Integer>> batches = new ArrayList<>();
+  private final List<CompletableFuture<Result<Map<Integer, Result<String, TestError>>, TestError>>> dispatched = new ArrayList<>();
+
+  @Test
+  public void testWindow() {
+    final BatchLoader<Integer, String, TestError> loader = loader(10);
+    final CompletionResult<String, TestError> first = loader.load(1);
+    final CompletionResult<String, TestError> second = loader.load(2);
+    final CompletionResult<String, TestError> duplicate = loader.load(1);
+    assertTrue(batches.isEmpty());
+    assertEquals(1, scheduled.size());
+    scheduled.remove(0).run();
+    assertEquals(Arrays.asList(Arrays.asList(1, 2)), batches);
+    final Map<Integer, Result<String, TestError>> results = new HashMap<>();
+    results.put(1, Result.forValue("1"));
+    dispatched.get(0).complete(Result.forValue(results));
+    assertEquals(Result.forValue("1"), first.getBlocking());
+    assertEquals(Result.forValue("1"), duplicate.getBlocking());
+    assertEquals(Result.forError(TestError.MISSING), second.getBlocking());
+  }
+
+  @Test
+  public void testMaxBatchSize() {
+    final BatchLoader<Integer, String, TestError> loader = loader(2);
+    loader.load(1);
+    loader.load(2);
+    loader.load(3);
+    assertEquals(Arrays.asList(Arrays.asList(1, 2)), batches);
+    scheduled.remove(0).run();
+    assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3)), batches);
+    // a new window is started by the next load:
+    assertTrue(scheduled.isEmpty());
+    loader.load(4);
+    assertEquals(1, scheduled.size());
+  }
+
+  @Test
+  public void testBatchError() {
+    final BatchLoader<Integer, String, TestError> loader = loader(10);
+    final CompletionResult<String, TestError> first = loader.load(1);
+    final CompletionResult<String, TestError> second = loader.load(2);
+    loader.dispatch();
+    dispatched.get(0).complete(Result.forError(TestError.UNAVAILABLE));
+    assertEquals(Result.forError(TestError.UNAVAILABLE), first.getBlocking());
+    assertEquals(Result.forError(TestError.UNAVAILABLE), second.getBlocking());
+  }
+
+  @Test
+  public void testBatchException() {
+    final BatchLoader<Integer, String, TestError> loader = loader(10);
+    final CompletionResult<String, TestError> first = loader.load(1);
+    loader.dispatch();
+    dispatched.get(0).completeExceptionally(new IllegalStateException());
+    assertTrue(first.toCompletionStage().toCompletableFuture().isCompletedExceptionally());
+  }
+
+  @Test
+  public void testWindowDispatchedOnExecutor() {
+    final List<Runnable> executed = new ArrayList<>();
+    final BatchLoader<Integer, String, TestError> loader = loader(10, executed::add);
+    loader.load(1);
+    scheduled.remove(0).run();
+    // the timer task only handed the batch off:
+    assertTrue(batches.isEmpty());
+    assertEquals(1, executed.size());
+    executed.get(0).run();
+    assertEquals(Arrays.asList(Arrays.asList(1)), batches);
+  }
+
+  @Test
+  public void testWindowRejected() {
+    final IllegalStateException rejected = new IllegalStateException();
+    final BatchLoader<Integer, String, TestError> loader = loader(10, task -> {
+      throw rejected;
+    });
+    final CompletionResult<String, TestError> first = loader.load(1);
+    scheduled.remove(0).run();
+    assertTrue(batches.isEmpty());
+    assertTrue(first.toCompletionStage().toCompletableFuture().isCompletedExceptionally());
+    // a new window is started by the next load:
+    loader.load(2);
+    assertEquals(1, scheduled.size());
+  }
+
+  private BatchLoader<Integer, String, TestError> loader(final int maxBatchSize) {
+    return loader(maxBatchSize, Runnable::run);
+  }
+
+  private BatchLoader<Integer, String, TestError> loader(final int maxBatchSize, final Executor executor) {
+    return BatchLoader.create(keys -> {
+      batches.add(keys);
+      final CompletableFuture<Result<Map<Integer, Result<String, TestError>>, TestError>> future = new CompletableFuture<>();
+      dispatched.add(future);
+      return CompletionResult.forStageResult(future);
+    }, maxBatchSize, Duration.ofMillis(5), TestError.MISSING, timer, executor);
+  }
+
+  private enum TestError {
+    MISSING,
+    UNAVAILABLE
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class CircuitBreakerTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  public void testOpensOnThreshold() {
+    final CircuitBreaker<TestError> breaker = breaker(Duration.ofMinutes(1));
+    assertEquals(Result.forError(TestError.UNAVAILABLE), breaker.call(() -> fail(TestError.UNAVAILABLE)).getBlocking());
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(Result.forError(TestError.CIRCUIT_OPEN), breaker.call(() -> fail(TestError.UNAVAILABLE)).getBlocking());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testNotCountedErrors() {
+    final CircuitBreaker<TestError> breaker = breaker(Duration.ofMinutes(1));
+    for (int i = 0; i < 10; i++) {
+      breaker.call(() -> fail(TestError.NOT_FOUND));
+    }
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(11, calls.get());
+  }
+
+  @Test
+  public void testTrialCloses() {
+    final CircuitBreaker<TestError> breaker = breaker(Duration.ZERO);
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    final CompletableFuture<Result<String, TestError>> trial = new CompletableFuture<>();
+    breaker.call(() -> CompletionResult.forStageResult(trial));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    // only one trial at a time:
+    assertEquals(Result.forError(TestError.CIRCUIT_OPEN), breaker.call(() -> fail(TestError.UNAVAILABLE)).getBlocking());
+    trial.complete(Result.forValue("1"));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    // the counts were reset:
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+  }
+
+  @Test
+  public void testTrialReopens() {
+    final CircuitBreaker<TestError> breaker = breaker(Duration.ZERO);
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    assertEquals(3, calls.get());
+  }
+
+  @Test
+  public void testTrialTimesOut() throws InterruptedException {
+    final CircuitBreaker<TestError> breaker = breaker(Duration.ofMillis(50));
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    breaker.call(() -> fail(TestError.UNAVAILABLE));
+    Thread.sleep(60);
+    final CompletableFuture<Result<String, TestError>> trial = new CompletableFuture<>();
+    breaker.call(() -> CompletionResult.forStageResult(trial));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    Thread.sleep(60);
+    // the trial did not complete within the open duration, the circuit opens again:
+    assertEquals(Result.forError(TestError.CIRCUIT_OPEN), breaker.call(() -> fail(TestError.UNAVAILABLE)).getBlocking());
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    Thread.sleep(60);
+    final CompletableFuture<Result<String, TestError>> next = new CompletableFuture<>();
+    breaker.call(() -> CompletionResult.forStageResult(next));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    // only the latest trial counts:
+    trial.complete(Result.forError(TestError.UNAVAILABLE));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    next.complete(Result.forValue("1"));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testConcurrentErrorsOpen() throws InterruptedException {
+    final Map<TestError, Integer> thresholds = new EnumMap<>(TestError.class);
+    thresholds.put(TestError.UNAVAILABLE, 1000);
+    final CircuitBreaker<TestError> breaker = CircuitBreaker.create(thresholds, Duration.ofMinutes(1), Duration.ofMinutes(1),
+                                                                    TestError.CIRCUIT_OPEN);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 8; i++) {
+      executor.execute(() -> {
+        for (int call = 0; call < 200; call++) {
+          breaker.call(() -> fail(TestError.UNAVAILABLE));
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    // the circuit opened on the 1000th error, the calls after it were not invoked:
+    assertTrue(calls.get() >= 1000 && calls.get() < 1600);
+  }
+
+  private CircuitBreaker<TestError> breaker(final Duration openDuration) {
+    final Map<TestError, Integer> thresholds = new EnumMap<>(TestError.class);
+    thresholds.put(TestError.UNAVAILABLE, 2);
+    return CircuitBreaker.create(thresholds, Duration.ofMinutes(1), openDuration, TestError.CIRCUIT_OPEN);
+  }
+
+  private CompletionResult<String, TestError> fail(final TestError error) {
+    calls.incrementAndGet();
+    return CompletionResult.forError(error);
+  }
+
+  private enum TestError {
+    NOT_FOUND,
+    UNAVAILABLE,
+    CIRCUIT_OPEN
+  }
+}
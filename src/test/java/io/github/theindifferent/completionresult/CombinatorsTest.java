@@ -0,0 +1,185 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class CombinatorsTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  @Test
+  public void testAllValues() {
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Arrays.asList(
+        CompletionResult.forValue("1"),
+        CompletionResult.forStageResult(pending),
+        CompletionResult.forValue("3")));
+    assertFalse(all.toCompletionStage().toCompletableFuture().isDone());
+    pending.complete(Result.forValue("2"));
+    assertEquals(Result.forValue(Arrays.asList("1", "2", "3")), all.getBlocking());
+  }
+
+  @Test
+  public void testAllValuesFirstError() {
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Arrays.asList(
+        CompletionResult.forStageResult(pending),
+        CompletionResult.forError(TestError.FIRST),
+        CompletionResult.forError(TestError.SECOND)));
+    // completed without waiting for the pending input:
+    assertEquals(Result.forError(TestError.FIRST), all.getBlocking());
+  }
+
+  @Test
+  public void testAllValuesEmpty() {
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Collections.emptyList());
+    assertEquals(Result.forValue(Collections.emptyList()), all.getBlocking());
+  }
+
+  @Test
+  public void testAllValuesException() {
+    final CustomException expected = new CustomException();
+    final CompletableFuture<Result<String, TestError>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(expected);
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Arrays.asList(
+        CompletionResult.forValue("1"),
+        CompletionResult.forStageResult(failed)));
+    try {
+      all.getBlocking();
+      fail("Exception of an input should complete the combined result exceptionally");
+    } catch (final CompletionException ex) {
+      assertSame(expected, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testFirstValue() {
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    final CompletionResult<String, TestError> first = CompletionResult.firstValue(Arrays.asList(
+        CompletionResult.forError(TestError.FIRST),
+        CompletionResult.forStageResult(pending),
+        CompletionResult.forValue("3")));
+    assertEquals(Result.forValue("3"), first.getBlocking());
+  }
+
+  @Test
+  public void testFirstValueAllErrors() {
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    final CompletableFuture<Result<String, TestError>> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new CustomException());
+    final CompletionResult<String, TestError> first = CompletionResult.firstValue(Arrays.asList(
+        CompletionResult.forStageResult(failed),
+        CompletionResult.forStageResult(pending),
+        CompletionResult.forError(TestError.FIRST)));
+    assertFalse(first.toCompletionStage().toCompletableFuture().isDone());
+    pending.complete(Result.forError(TestError.SECOND));
+    assertEquals(Result.forError(TestError.SECOND), first.getBlocking());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFirstValueEmpty() {
+    CompletionResult.firstValue(Collections.<CompletionResult<String, TestError>>emptyList());
+  }
+
+  @Test
+  public void testPartition() {
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    final CompletionResult<Partition<String, TestError>, TestError> partition = CompletionResult.partition(Arrays.asList(
+        CompletionResult.forValue("1"),
+        CompletionResult.forError(TestError.SECOND),
+        CompletionResult.forStageResult(pending),
+        CompletionResult.forError(TestError.SECOND),
+        CompletionResult.forValue("5")), TestError.class);
+    pending.complete(Result.forError(TestError.FIRST));
+    final Result<Partition<String, TestError>, TestError> result = partition.getBlocking();
+    assertTrue(result.isValue());
+    assertEquals(Arrays.asList("1", "5"), result.value().values());
+    assertEquals(1L, result.value().errorCount(TestError.FIRST));
+    assertEquals(2L, result.value().errorCount(TestError.SECOND));
+    assertEquals(0L, result.value().errorCount(TestError.THIRD));
+    assertEquals(Arrays.asList(TestError.FIRST, TestError.SECOND), new ArrayList<>(result.value().errorCounts().keySet()));
+  }
+
+  public enum TestError {
+    FIRST,
+    SECOND,
+    THIRD
+  }
+
+  private static class CustomException extends RuntimeException {
+  }
+
+  @Test
+  public void testCancelCancelsInputs() {
+    final CompletableFuture<Result<String, TestError>> first = new CompletableFuture<>();
+    final CompletableFuture<Result<String, TestError>> second = new CompletableFuture<>();
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Arrays.asList(
+        CompletionResult.forStageResult(first),
+        CompletionResult.forStageResult(second)));
+    assertTrue(all.cancel());
+    assertTrue(first.isCancelled());
+    assertTrue(second.isCancelled());
+  }
+
+  @Test
+  public void testCancelKeepsSharedInputs() {
+    final CompletableFuture<Result<String, TestError>> first = new CompletableFuture<>();
+    final CompletableFuture<Result<String, TestError>> second = new CompletableFuture<>();
+    final CompletionResult<String, TestError> shared = CompletionResult.forStageResult(first);
+    final CompletionResult<String, TestError> sibling = shared.thenApplyValue(value -> value + "!");
+    final CompletionResult<List<String>, TestError> all = CompletionResult.allValues(Arrays.asList(
+        shared,
+        CompletionResult.forStageResult(second)));
+    assertTrue(all.cancel());
+    assertFalse(first.isCancelled());
+    assertTrue(second.isCancelled());
+    first.complete(Result.forValue("first"));
+    assertEquals(Result.forValue("first!"), sibling.getBlocking());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class CompletionLongResultTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  @Test
+  public void testCompleted() {
+    final List<Long> values = new ArrayList<>();
+    final CompletionLongResult<TestError> result = CompletionResult.<String, TestError>forValue("41")
+        .thenApplyAsLong(Long::parseLong)
+        .thenApplyAsLong(value -> value + 1)
+        .onResultValue(values::add);
+    assertEquals(LongResult.forValue(42L), result.getBlocking());
+    assertEquals(Result.forValue("42"), result.mapToObj(Long::toString).getBlocking());
+    assertEquals(1, values.size());
+    final CompletionLongResult<TestError> error = CompletionLongResult.forError(TestError.FIRST);
+    assertSame(error, error.thenComposeValue(CompletionLongResult::forValue));
+    assertEquals(LongResult.forError(OtherError.OTHER), error.thenApplyError(e -> OtherError.OTHER).getBlocking());
+  }
+
+  @Test
+  public void testPending() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletableFuture<LongResult<TestError>> inner = new CompletableFuture<>();
+    final List<TestError> errors = new ArrayList<>();
+    final CompletionResult<Long, TestError> result = CompletionResult.forStageResult(future)
+        .thenApplyAsLong(Long::parseLong)
+        .thenComposeValue(value -> CompletionLongResult.forStageResult(inner).thenApplyAsLong(other -> value * other))
+        .onResultError(errors::add)
+        .boxed();
+    future.complete(Result.forValue("6"));
+    inner.complete(LongResult.forValue(7L));
+    assertEquals(Result.forValue(42L), result.getBlocking());
+    assertTrue(errors.isEmpty());
+
+    final CompletableFuture<Result<String, TestError>> failing = new CompletableFuture<>();
+    final CompletionLongResult<TestError> errorResult = CompletionResult.forStageResult(failing)
+        .thenApplyAsLong(Long::parseLong)
+        .onResultError(errors::add);
+    failing.complete(Result.forError(TestError.FIRST));
+    assertEquals(LongResult.forError(TestError.FIRST), errorResult.getBlocking());
+    assertEquals(1, errors.size());
+  }
+
+  @Test
+  public void testMappingException() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionLongResult<TestError> result = CompletionResult.forStageResult(future).thenApplyAsLong(Long::parseLong);
+    future.complete(Result.forValue("not a number"));
+    try {
+      result.getBlocking();
+      fail();
+    } catch (final CompletionException expected) {
+      assertTrue(expected.getCause() instanceof NumberFormatException);
+    }
+  }
+
+  @Test
+  public void testCancel() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionLongResult<TestError> result = CompletionResult.forStageResult(future)
+        .thenApplyAsLong(Long::parseLong)
+        .thenApplyAsLong(value -> value + 1);
+    assertTrue(result.cancel());
+    assertTrue(future.isCancelled());
+  }
+
+  private enum TestError {
+    FIRST
+  }
+
+  private enum OtherError {
+    OTHER
+  }
+}
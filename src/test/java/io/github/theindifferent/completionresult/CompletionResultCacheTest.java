@@ -0,0 +1,153 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class CompletionResultCacheTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final List<CompletableFuture<Result<String, TestError>>> loads = new ArrayList<>();
+
+  @Test
+  public void testSingleFlight() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.singleFlight(this::load);
+    final CompletionResult<String, TestError> first = cache.get("a");
+    final CompletionResult<String, TestError> second = cache.get("a");
+    cache.get("b");
+    assertEquals(2, loads.size());
+    loads.get(0).complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), first.getBlocking());
+    assertEquals(Result.forValue("1"), second.getBlocking());
+    // not kept:
+    assertEquals(1, cache.size());
+    cache.get("a");
+    assertEquals(3, loads.size());
+  }
+
+  @Test
+  public void testCancelledViewKeepsLoad() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.singleFlight(this::load);
+    final CompletionResult<String, TestError> first = cache.get("a");
+    final CompletionResult<String, TestError> second = cache.get("a");
+    first.toCompletionStage().toCompletableFuture().cancel(true);
+    assertFalse(loads.get(0).isCancelled());
+    loads.get(0).complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), second.getBlocking());
+  }
+
+  @Test
+  public void testTtlPerError() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.create(
+        this::load, 10, Duration.ofMinutes(1), Collections.singletonMap(TestError.NOT_FOUND, Duration.ofMinutes(1)));
+    cache.get("value");
+    cache.get("notFound");
+    cache.get("unavailable");
+    loads.get(0).complete(Result.forValue("1"));
+    loads.get(1).complete(Result.forError(TestError.NOT_FOUND));
+    loads.get(2).complete(Result.forError(TestError.UNAVAILABLE));
+    assertEquals(Result.forValue("1"), cache.get("value").getBlocking());
+    assertEquals(Result.forError(TestError.NOT_FOUND), cache.get("notFound").getBlocking());
+    assertEquals(3, loads.size());
+    cache.get("unavailable");
+    assertEquals(4, loads.size());
+  }
+
+  @Test
+  public void testExpiry() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.<String, String, TestError>create(
+        CompletionResult::forValue, 10, Duration.ofNanos(1), Collections.emptyMap());
+    final CompletionResult<String, TestError> first = cache.get("a");
+    assertEquals(Result.forValue("a"), first.getBlocking());
+    final long start = System.nanoTime();
+    while (System.nanoTime() - start < 1000) {
+      // wait for the expiry
+    }
+    cache.get("a");
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testSizeBound() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.<String, String, TestError>create(
+        key -> {
+          loads.add(null);
+          return CompletionResult.forValue(key);
+        },
+        2, Duration.ofMinutes(1), Collections.emptyMap());
+    cache.get("a");
+    cache.get("b");
+    cache.get("c");
+    assertEquals(2, cache.size());
+    // the oldest one was evicted:
+    cache.get("a");
+    assertEquals(4, loads.size());
+    cache.get("c");
+    assertEquals(4, loads.size());
+  }
+
+  @Test
+  public void testExceptionNotKept() {
+    final CompletionResultCache<String, String, TestError> cache = CompletionResultCache.create(
+        this::load, 10, Duration.ofMinutes(1), Collections.emptyMap());
+    final CompletionResult<String, TestError> first = cache.get("a");
+    loads.get(0).completeExceptionally(new IllegalStateException());
+    assertTrue(first.toCompletionStage().toCompletableFuture().isCompletedExceptionally());
+    cache.get("a");
+    assertEquals(2, loads.size());
+  }
+
+  private CompletionResult<String, TestError> load(final String key) {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    loads.add(future);
+    return CompletionResult.forStageResult(future);
+  }
+
+  private enum TestError {
+    NOT_FOUND,
+    UNAVAILABLE
+  }
+}
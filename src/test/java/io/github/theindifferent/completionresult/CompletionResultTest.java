@@ -32,6 +32,7 @@
 package io.github.theindifferent.completionresult;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -45,11 +46,16 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
+import java.time.Duration;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import org.junit.Rule;
 import org.junit.Test;
@@ -399,6 +405,530 @@ public class CompletionResultTest {
     }
   }
 
+  @Test
+  public void testOnValuePending() {
+    final Consumer<String> valueConsumer = mock(Consumer.class);
+    final Consumer<TestError> errorConsumer = mock(Consumer.class);
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(future)
+        .onResultValue(valueConsumer)
+        .onResultError(errorConsumer);
+    verify(valueConsumer, never()).accept(any());
+    future.complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), completionResult.getBlocking());
+    verify(valueConsumer, times(1)).accept(eq("1"));
+    verifyNoMoreInteractions(valueConsumer, errorConsumer);
+  }
+
+  @Test
+  public void testCompletedComposeReturnsMapped() {
+    final CompletionResult<String, TestError> mapped = CompletionResult.forValue("1");
+    final CompletionResult<Integer, TestError> value = CompletionResult.forValue(1);
+    assertSame(mapped, value.thenComposeValue(i -> mapped));
+    final CompletionResult<Integer, TestError> error = CompletionResult.forError(TestError.RANDOM_ERROR);
+    assertSame(error, error.thenApplyValue(String::valueOf).thenComposeValue(s -> mapped));
+  }
+
+  @Test
+  public void testCompletedStageIsUnwrapped() {
+    final Result<String, TestError> result = Result.forValue("1");
+    final CompletionResult<String, TestError> completionResult =
+        CompletionResult.forStageResult(CompletableFuture.completedFuture(result));
+    final CompletionStage<Result<String, TestError>> stage = completionResult.toCompletionStage();
+    assertSame(result, stage.toCompletableFuture().join());
+  }
+
+  @Test
+  public void testToCompletionStagePending() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    assertSame(future, CompletionResult.forStageResult(future).toCompletionStage());
+  }
+
+  @Test
+  public void testCompletedErrorIsCanonical() {
+    final CompletionResult<String, TestError> error = CompletionResult.forError(TestError.SECOND_ERROR);
+    assertSame(error, CompletionResult.forError(TestError.SECOND_ERROR));
+    assertSame(error, CompletionResult.<String, TestError>forError(TestError.RANDOM_ERROR)
+        .thenApplyError(e -> TestError.SECOND_ERROR));
+    assertSame(Result.forError(TestError.SECOND_ERROR), error.getBlocking());
+  }
+
+  @Test
+  public void testAsyncRunsOnExecutor() {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "async-test"));
+    try {
+      final Consumer<TestError> errorConsumer = mock(Consumer.class);
+      final Result<String, TestError> value = CompletionResult.<Integer, TestError>forValue(1)
+          .thenApplyValueAsync(i -> Thread.currentThread().getName(), executor)
+          .getBlocking();
+      assertEquals(Result.forValue("async-test"), value);
+      final Result<String, TestError2> composed = CompletionResult.<String, TestError>forError(TestError.RANDOM_ERROR)
+          .onResultErrorAsync(errorConsumer, executor)
+          .thenComposeErrorAsync(e -> CompletionResult.<String, TestError2>forValue(Thread.currentThread().getName()), executor)
+          .getBlocking();
+      assertEquals(Result.forValue("async-test"), composed);
+      verify(errorConsumer, times(1)).accept(eq(TestError.RANDOM_ERROR));
+      verifyNoMoreInteractions(errorConsumer);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testAsyncOnPendingStage() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(future)
+        .thenComposeValueAsync(i -> CompletionResult.forValue(i + 1))
+        .thenApplyValueAsync(String::valueOf);
+    future.complete(Result.forValue(1));
+    assertEquals(Result.forValue("2"), completionResult.getBlocking());
+  }
+
+  @Test
+  public void testAsyncSkipsNotMatchingResult() {
+    final CompletionResult<Integer, TestError> error = CompletionResult.forError(TestError.RANDOM_ERROR);
+    assertSame(error, error.thenApplyValueAsync(String::valueOf));
+    assertSame(error, error.onResultValueAsync(value -> fail("Value consumer was invoked for error")));
+    final CompletionResult<Integer, TestError> value = CompletionResult.forValue(1);
+    assertSame(value, value.thenComposeErrorAsync(e -> CompletionResult.forError(TestError2.ANOTHER_ERROR_TYPE)));
+  }
+
+  @Test
+  public void testAwait() throws Exception {
+    assertEquals(Result.forValue("1"), CompletionResult.<String, TestError>forValue("1").await());
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(future);
+    new Thread(() -> future.complete(Result.forError(TestError.RANDOM_ERROR))).start();
+    assertEquals(Result.forError(TestError.RANDOM_ERROR), completionResult.await(Duration.ofSeconds(5)));
+  }
+
+  @Test
+  public void testAwaitTimeout() throws Exception {
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(new CompletableFuture<>());
+    try {
+      completionResult.await(10, TimeUnit.MILLISECONDS);
+      fail("Pending result should time out");
+    } catch (final TimeoutException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testAwaitExceptionally() throws Exception {
+    final CustomException expectedException = new CustomException();
+    final CompletionResult<String, TestError> completionResult =
+        CompletionResult.forStageResult(exceptionallyCompletedFuture(expectedException));
+    try {
+      completionResult.await();
+      fail("Exceptionally completed result should throw");
+    } catch (final ExecutionException ex) {
+      assertSame(expectedException, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testSupplyOnVirtualThread() throws Exception {
+    final Result<String, TestError> result = CompletionResult
+        .supplyOnVirtualThread(() -> Result.<String, TestError>forValue("1"))
+        .thenApplyValue(str -> str + "2")
+        .await();
+    assertEquals(Result.forValue("12"), result);
+  }
+
+  @Test
+  public void testCompleteOnTimeout() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final Result<String, TestError> result = CompletionResult.forStageResult(future)
+        .completeOnTimeout(TestError.SECOND_ERROR, Duration.ofMillis(20))
+        .getBlocking();
+    assertEquals(Result.forError(TestError.SECOND_ERROR), result);
+    // the source keeps running:
+    assertFalse(future.isDone());
+  }
+
+  @Test
+  public void testOrTimeoutError() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final Result<String, TestError> result = CompletionResult.forStageResult(future)
+        .orTimeoutError(TestError.SECOND_ERROR, Duration.ofMillis(20))
+        .getBlocking();
+    assertEquals(Result.forError(TestError.SECOND_ERROR), result);
+    // the source is cancelled by the timer thread right after the error is set:
+    try {
+      future.join();
+      fail("source not cancelled");
+    } catch (final CancellationException expected) {
+      assertTrue(future.isCancelled());
+    }
+  }
+
+  @Test
+  public void testCompletedBeforeTimeout() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(future)
+        .orTimeoutError(TestError.SECOND_ERROR, Duration.ofSeconds(5));
+    future.complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), completionResult.getBlocking());
+    final CompletionResult<String, TestError> completed = CompletionResult.forValue("2");
+    assertSame(completed, completed.completeOnTimeout(TestError.SECOND_ERROR, Duration.ZERO));
+  }
+
+  @Test
+  public void testExpiredDeadlineSkipsCompose() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<String, TestError> completionResult = CompletionResult.<String, TestError>forValue("1")
+        .withDeadline(Deadline.after(Duration.ZERO), TestError.SECOND_ERROR)
+        .thenApplyValue(str -> str + "2")
+        .thenComposeValue(str -> CompletionResult.forStageResult(future));
+    assertEquals(Result.forError(TestError.SECOND_ERROR), completionResult.getBlocking());
+    assertFalse(future.isDone());
+  }
+
+  @Test
+  public void testDeadlineErrorMappedOnlyOnExpiry() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final Consumer<TestError> consumer = mock(Consumer.class);
+    final CompletionResult<String, TestError2> completionResult = CompletionResult.forStageResult(future)
+        .withDeadline(Deadline.after(Duration.ofMinutes(1)), TestError.SECOND_ERROR)
+        .thenApplyError(error -> {
+          consumer.accept(error);
+          return TestError2.ANOTHER_ERROR_TYPE;
+        });
+    future.complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), completionResult.getBlocking());
+    verify(consumer, never()).accept(any());
+  }
+
+  @Test
+  public void testDeadlineErrorMappingException() {
+    final CustomException exception = new CustomException();
+    final CompletionResult<String, TestError2> completionResult = CompletionResult.<String, TestError>forValue("1")
+        .withDeadline(Deadline.after(Duration.ZERO), TestError.SECOND_ERROR)
+        .<TestError2>thenApplyError(error -> {
+          throw exception;
+        })
+        .thenComposeValue(str -> CompletionResult.forValue(str + "2"));
+    try {
+      completionResult.getBlocking();
+      fail();
+    } catch (final CompletionException expected) {
+      assertSame(exception, expected.getCause());
+    }
+  }
+
+  @Test
+  public void testDeadlineExpiresWhilePending() throws Exception {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    final Consumer<String> consumer = mock(Consumer.class);
+    final CompletionResult<String, TestError> completionResult = CompletionResult.forStageResult(future)
+        .withDeadline(Deadline.after(Duration.ofMillis(20)), TestError.SECOND_ERROR)
+        .thenComposeValue(str -> {
+          consumer.accept(str);
+          return CompletionResult.forValue(str);
+        });
+    assertEquals(Result.forError(TestError.SECOND_ERROR), completionResult.getBlocking());
+    // the source keeps running:
+    assertFalse(future.isDone());
+    verify(consumer, never()).accept(any());
+  }
+
+  @Test
+  public void testDeadlinePassedToMapping() {
+    final Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+    final CompletionResult<String, TestError> completionResult = CompletionResult.<String, TestError>forValue("1")
+        .withDeadline(deadline, TestError.SECOND_ERROR)
+        .thenApplyValue(str -> str + "2")
+        .thenComposeValueWithDeadline((str, current) -> {
+          assertSame(deadline, current);
+          return CompletionResult.forValue(str + "3");
+        });
+    assertEquals(Result.forValue("123"), completionResult.getBlocking());
+    assertSame(deadline, completionResult.deadline());
+    assertSame(Deadline.none(), CompletionResult.forValue("1").deadline());
+  }
+
+  @Test
+  public void testDeadlineErrorMapped() {
+    final CompletionResult<String, TestError2> completionResult = CompletionResult.<String, TestError>forValue("1")
+        .withDeadline(Deadline.after(Duration.ZERO), TestError.SECOND_ERROR)
+        .thenApplyError(error -> TestError2.ANOTHER_ERROR_TYPE)
+        .thenComposeValue(str -> CompletionResult.forValue(str + "2"));
+    assertEquals(Result.forError(TestError2.ANOTHER_ERROR_TYPE), completionResult.getBlocking());
+  }
+
+  @Test
+  public void testDeepPendingChain() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    CompletionResult<Integer, TestError> chain = CompletionResult.forStageResult(future);
+    for (int i = 0; i < 100_000; i++) {
+      chain = chain
+          .thenApplyValue(value -> value + 1)
+          .thenComposeValue(value -> CompletionResult.forValue(value));
+    }
+    future.complete(Result.forValue(0));
+    assertEquals(Result.forValue(100_000), chain.getBlocking());
+  }
+
+  @Test
+  public void testDeepFusedChain() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    CompletionResult<Integer, TestError> chain = CompletionResult.forStageResult(future);
+    for (int i = 0; i < 100_000; i++) {
+      chain = chain.thenApplyValue(value -> value + 1);
+    }
+    future.complete(Result.forValue(0));
+    assertEquals(Result.forValue(100_000), chain.getBlocking());
+  }
+
+  @Test
+  public void testFusedMappingsAppliedOnce() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final Consumer<Integer> first = mock(Consumer.class);
+    final Consumer<Integer> second = mock(Consumer.class);
+    final CompletionResult<Integer, TestError> mapped = CompletionResult.<Integer, TestError>forStageResult(future)
+        .thenApplyValue(value -> {
+          first.accept(value);
+          return value + 1;
+        })
+        .thenApplyValue(value -> {
+          second.accept(value);
+          return value * 2;
+        });
+    future.complete(Result.forValue(1));
+    assertEquals(Result.forValue(4), mapped.getBlocking());
+    assertEquals(Result.forValue(4), mapped.toCompletionStage().toCompletableFuture().join());
+    verify(first).accept(1);
+    verify(second).accept(2);
+    verifyNoMoreInteractions(first, second);
+  }
+
+  @Test
+  public void testFusedConsumerRunsWithoutUse() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final Consumer<Integer> consumer = mock(Consumer.class);
+    CompletionResult.<Integer, TestError>forStageResult(future)
+        .thenApplyValue(value -> value + 1)
+        .onResultValue(consumer)
+        .thenApplyValue(value -> value + 1);
+    future.complete(Result.forValue(1));
+    verify(consumer).accept(2);
+  }
+
+  @Test
+  public void testBranchedFusedMappingAppliedOnce() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final Consumer<Integer> shared = mock(Consumer.class);
+    final CompletionResult<Integer, TestError> mapped = CompletionResult.<Integer, TestError>forStageResult(future)
+        .thenApplyValue(value -> value + 1)
+        .thenApplyValue(value -> {
+          shared.accept(value);
+          return value * 2;
+        });
+    final CompletionResult<Integer, TestError> first = mapped.thenApplyValue(value -> value + 1);
+    final CompletionResult<Integer, TestError> second = mapped.thenApplyValue(value -> value - 1);
+    final CompletionResult<Integer, TestError> bound = mapped.withDeadline(Deadline.after(Duration.ofMinutes(1)), TestError.SECOND_ERROR)
+        .thenApplyValue(value -> value * 10);
+    future.complete(Result.forValue(1));
+    assertEquals(Result.forValue(5), first.getBlocking());
+    assertEquals(Result.forValue(3), second.getBlocking());
+    assertEquals(Result.forValue(40), bound.getBlocking());
+    assertEquals(Result.forValue(4), mapped.getBlocking());
+    verify(shared).accept(2);
+    verifyNoMoreInteractions(shared);
+  }
+
+  @Test
+  public void testFusedMappingAppliedWithoutUse() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final Consumer<Integer> consumer = mock(Consumer.class);
+    CompletionResult.<Integer, TestError>forStageResult(future)
+        .thenApplyValue(value -> value + 1)
+        .thenApplyValue(value -> {
+          consumer.accept(value);
+          return value;
+        });
+    future.complete(Result.forValue(1));
+    verify(consumer).accept(2);
+  }
+
+  @Test
+  public void testFusedMappingException() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final RuntimeException exception = new RuntimeException();
+    final CompletionResult<Integer, TestError> mapped = CompletionResult.<Integer, TestError>forStageResult(future)
+        .<Integer>thenApplyValue(value -> {
+          throw exception;
+        })
+        .thenApplyValue(value -> value + 1);
+    future.complete(Result.forValue(1));
+    try {
+      mapped.getBlocking();
+      fail();
+    } catch (final CompletionException expected) {
+      assertSame(exception, expected.getCause());
+    }
+  }
+
+  @Test
+  public void testCancelPropagatesUpstream() {
+    final CompletableFuture<Result<Integer, TestError>> source = new CompletableFuture<>();
+    final CompletableFuture<Result<Integer, TestError>> inner = new CompletableFuture<>();
+    final Runnable hook = mock(Runnable.class);
+    final CompletionResult<Integer, TestError> composed = CompletionResult.<Integer, TestError>forStageResult(source)
+        .onCancel(hook)
+        .thenApplyValue(value -> value + 1)
+        .thenComposeValue(value -> CompletionResult.<Integer, TestError>forStageResult(inner))
+        .thenApplyValue(value -> value + 1);
+    source.complete(Result.forValue(1));
+    assertTrue(composed.cancel());
+    assertFalse(composed.cancel());
+    assertTrue(inner.isCancelled());
+    verify(hook, never()).run();
+
+    final CompletableFuture<Result<Integer, TestError>> pending = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> mapped = CompletionResult.<Integer, TestError>forStageResult(pending)
+        .onCancel(hook)
+        .thenApplyValue(value -> value + 1)
+        .thenComposeValue(value -> CompletionResult.forValue(value));
+    assertTrue(mapped.cancel());
+    assertTrue(pending.isCancelled());
+    verify(hook).run();
+    try {
+      mapped.getBlocking();
+      fail();
+    } catch (final CancellationException expected) {
+      // cancelled
+    }
+  }
+
+  @Test
+  public void testCancelledDependentKeepsSiblings() {
+    final CompletableFuture<Result<Integer, TestError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> shared = CompletionResult.forStageResult(source);
+    final CompletionResult<Integer, TestError> first = shared.thenApplyValue(value -> value + 1);
+    final CompletionResult<Integer, TestError> second = shared.thenApplyValue(value -> value + 2);
+    final CompletionResult<Integer, TestError> async = shared.thenApplyValueAsync(value -> value + 3, Runnable::run);
+    final CompletionResult<Integer, TestError> extended = first.thenApplyValue(value -> value + 4);
+    final CompletionResult<Integer, TestError> branched = first.thenApplyValue(value -> value + 5);
+    assertTrue(async.cancel());
+    assertTrue(extended.cancel());
+    assertFalse(source.isCancelled());
+    source.complete(Result.forValue(1));
+    assertEquals(Result.forValue(3), second.getBlocking());
+    assertEquals(Result.forValue(7), branched.getBlocking());
+  }
+
+  @Test
+  public void testAllDependentsCancelledCancelSource() {
+    final CompletableFuture<Result<Integer, TestError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> shared = CompletionResult.forStageResult(source);
+    final CompletionResult<Integer, TestError> mapped = shared.thenApplyValue(value -> value + 1);
+    final CompletionResult<Integer, TestError> extended = mapped.thenApplyValue(value -> value + 2);
+    final CompletionResult<Integer, TestError> branched = mapped.thenApplyValue(value -> value + 3);
+    final CompletionResult<Integer, TestError> async = shared.thenApplyValueAsync(value -> value + 4, Runnable::run);
+    assertTrue(extended.cancel());
+    assertTrue(async.cancel());
+    assertFalse(source.isCancelled());
+    assertTrue(branched.cancel());
+    assertTrue(source.isCancelled());
+  }
+
+  @Test
+  public void testCancelCompleted() {
+    final Runnable hook = mock(Runnable.class);
+    final CompletionResult<Integer, TestError> completed = CompletionResult.<Integer, TestError>forValue(1).onCancel(hook);
+    assertFalse(completed.cancel());
+    assertEquals(Result.forValue(1), completed.getBlocking());
+    verify(hook, never()).run();
+  }
+
+  @Test
+  public void testTraced() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> source = CompletionResult.forStageResult(future);
+    assertSame(source, source.traced("source"));
+    final CompletionResult<Integer, TestError> composed = source
+        .thenComposeValue(value -> CompletionResult.<Integer, TestError>forValue(value + 1).traced("inner"));
+    future.complete(Result.forValue(1));
+    assertEquals(Result.forValue(2), composed.getBlocking());
+  }
+
+  @Test
+  public void testDeepNestedCompose() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> nested = nest(CompletionResult.forStageResult(future), 100_000);
+    future.complete(Result.forValue(0));
+    assertEquals(Result.forValue(100_000), nested.getBlocking());
+  }
+
+  @Test
+  public void testDeepRecursiveComposeOfCompleted() {
+    assertEquals(Result.forValue(0), countDown(100_000).getBlocking());
+    assertEquals(Result.forError(TestError.SECOND_ERROR), countDownError(100_000).getBlocking());
+  }
+
+  @Test
+  public void testBlockingWaitInCallback() throws Exception {
+    for (final int depth : new int[] {1, 200}) {
+      assertEquals(Result.forValue(2), inCallback(depth, derived -> derived.await(5, TimeUnit.SECONDS)));
+      assertEquals(Result.forValue(2), inCallback(depth, CompletionResult::getBlocking));
+      assertEquals(Result.forValue(2),
+          inCallback(depth, derived -> derived.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS)));
+    }
+  }
+
+  // completes a source in a callback nested depth deep, then waits for a result derived from it in the same callback:
+  private static Result<Integer, TestError> inCallback(final int depth, final Wait wait) throws Exception {
+    final CompletableFuture<Result<Integer, TestError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> derived = CompletionResult.forStageResult(source)
+        .thenApplyValueAsync(v -> v + 1, Runnable::run)
+        .thenApplyValue(v -> v);
+    final CompletableFuture<Result<Integer, TestError>> waited = new CompletableFuture<>();
+    final Promise<Integer> first = new Promise<>();
+    Promise<Integer> current = first;
+    for (int i = 0; i < depth; i++) {
+      final Promise<Integer> next = new Promise<>();
+      current.subscribe((value, throwable) -> next.complete(value));
+      current = next;
+    }
+    current.subscribe((value, throwable) -> {
+      source.complete(Result.forValue(value));
+      try {
+        waited.complete(wait.on(derived));
+      } catch (final Exception e) {
+        waited.completeExceptionally(e);
+      }
+    });
+    first.complete(1);
+    return waited.get(5, TimeUnit.SECONDS);
+  }
+
+  private interface Wait {
+
+    Result<Integer, TestError> on(CompletionResult<Integer, TestError> derived) throws Exception;
+  }
+
+  private static CompletionResult<Integer, TestError> countDown(final int value) {
+    return CompletionResult.<Integer, TestError>forValue(value)
+        .thenComposeValue(v -> v == 0 ? CompletionResult.forValue(0) : countDown(v - 1));
+  }
+
+  private static CompletionResult<Integer, TestError> countDownError(final int value) {
+    return CompletionResult.<Integer, TestError>forError(TestError.RANDOM_ERROR)
+        .thenComposeError(error -> value == 0 ? CompletionResult.forError(TestError.SECOND_ERROR) : countDownError(value - 1));
+  }
+
+  private static CompletionResult<Integer, TestError> nest(final CompletionResult<Integer, TestError> inner, final int depth) {
+    CompletionResult<Integer, TestError> current = inner;
+    for (int i = 0; i < depth; i++) {
+      final CompletionResult<Integer, TestError> captured = current;
+      current = CompletionResult.<Integer, TestError>forValue(0)
+          .thenComposeValueAsync(v -> captured, Runnable::run)
+          .thenApplyValue(value -> value + 1);
+    }
+    return current;
+  }
+
   private <T> CompletionStage<T> exceptionallyCompletedFuture(final Throwable throwable) {
     final CompletableFuture<T> future = new CompletableFuture<>();
     future.completeExceptionally(throwable);
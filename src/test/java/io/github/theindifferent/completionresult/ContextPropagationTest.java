@@ -0,0 +1,125 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class ContextPropagationTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final ThreadLocal<String> context = new ThreadLocal<>();
+  private final AtomicInteger restores = new AtomicInteger();
+  private final ContextPropagator propagator = new ContextPropagator() {
+    @Override
+    public Object capture() {
+      return context.get();
+    }
+
+    @Override
+    public void restore(final Object captured) {
+      restores.incrementAndGet();
+      context.set((String) captured);
+    }
+  };
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+    ContextPropagation.register(propagator);
+  }
+
+  @After
+  public void tearDown() {
+    assertTrue(ContextPropagation.unregister(propagator));
+    assertFalse(ContextPropagation.unregister(propagator));
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPropagatedToOtherThread() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    context.set("request-1");
+    final CompletionResult<String, TestError> result = CompletionResult.<String, TestError>forStageResult(future)
+        .thenApplyValueAsync(value -> value + ':' + context.get(), executor)
+        .thenComposeValueAsync(value -> CompletionResult.forValue(value + ':' + context.get()), executor)
+        .onResultValue(value -> assertEquals("request-1", context.get()));
+    context.remove();
+    future.complete(Result.forValue("value"));
+    assertEquals(Result.forValue("value:request-1:request-1"), result.getBlocking());
+    // the executor thread got its context back:
+    assertNull(CompletableFuture.supplyAsync(context::get, executor).join());
+  }
+
+  @Test
+  public void testNotRestoredWhenUnchanged() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    context.set("request-1");
+    final CompletionResult<String, TestError> result = CompletionResult.<String, TestError>forStageResult(future)
+        .thenApplyValue(value -> value + ':' + context.get());
+    future.complete(Result.forValue("value"));
+    assertEquals(Result.forValue("value:request-1"), result.getBlocking());
+    assertEquals(0, restores.get());
+    context.remove();
+  }
+
+  @Test
+  public void testCompletedNotWrapped() {
+    context.set("request-1");
+    final CompletionResult<String, TestError> result = CompletionResult.<String, TestError>forValue("value")
+        .thenApplyValue(value -> value + ':' + context.get());
+    context.remove();
+    assertEquals(Result.forValue("value:request-1"), result.getBlocking());
+    assertNull(context.get());
+    assertEquals(0, restores.get());
+  }
+
+  private enum TestError {
+    FAILED
+  }
+}
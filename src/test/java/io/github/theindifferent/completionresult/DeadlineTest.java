@@ -0,0 +1,78 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class DeadlineTest {
+
+  @Test
+  public void testExpired() {
+    final Deadline deadline = Deadline.after(Duration.ZERO);
+    assertTrue(deadline.isExpired());
+    assertEquals(0, deadline.remainingNanos());
+    assertEquals(Duration.ZERO, deadline.remaining());
+    assertTrue(Deadline.after(-1, TimeUnit.SECONDS).isExpired());
+  }
+
+  @Test
+  public void testPending() {
+    final Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+    assertFalse(deadline.isExpired());
+    assertTrue(deadline.remainingNanos() > 0);
+    assertTrue(deadline.remaining().compareTo(Duration.ofSeconds(5)) <= 0);
+  }
+
+  @Test
+  public void testNone() {
+    assertFalse(Deadline.none().isExpired());
+    assertEquals(Long.MAX_VALUE, Deadline.none().remainingNanos());
+    assertFalse(Deadline.after(Duration.ofSeconds(Long.MAX_VALUE)).isExpired());
+  }
+
+  @Test
+  public void testEarliest() {
+    final Deadline early = Deadline.after(Duration.ofSeconds(1));
+    final Deadline late = Deadline.after(Duration.ofSeconds(10));
+    assertSame(early, early.earliest(late));
+    assertSame(early, late.earliest(early));
+    assertSame(early, Deadline.none().earliest(early));
+    assertSame(early, early.earliest(Deadline.none()));
+  }
+}
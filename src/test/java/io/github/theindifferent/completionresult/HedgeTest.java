@@ -0,0 +1,180 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class HedgeTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final List<Runnable> scheduled = new ArrayList<>();
+  // keeps the tasks to run them when the test decides the delay passed:
+  private final Timer timer = (task, delay, unit) -> {
+    scheduled.add(task);
+    return () -> scheduled.remove(task);
+  };
+  private final List<CompletableFuture<Result<String, TestError>>> launched = new ArrayList<>();
+
+  @Test
+  public void testFirstValueWins() {
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.noneOf(TestError.class), policy(3));
+    assertEquals(1, launched.size());
+    runScheduled();
+    assertEquals(2, launched.size());
+    launched.get(1).complete(Result.forValue("2"));
+    assertEquals(Result.forValue("2"), hedged.getBlocking());
+    assertTrue(launched.get(0).isCancelled());
+    // no more attempts after the result:
+    runScheduled();
+    assertEquals(2, launched.size());
+  }
+
+  @Test
+  public void testNotHedgeableError() {
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.of(TestError.UNAVAILABLE), policy(3));
+    runScheduled();
+    launched.get(0).complete(Result.forError(TestError.NOT_FOUND));
+    assertEquals(Result.forError(TestError.NOT_FOUND), hedged.getBlocking());
+    assertTrue(launched.get(1).isCancelled());
+  }
+
+  @Test
+  public void testHedgeableError() {
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.of(TestError.UNAVAILABLE), policy(2));
+    launched.get(0).complete(Result.forError(TestError.UNAVAILABLE));
+    // started right away, without waiting for the delay:
+    assertEquals(2, launched.size());
+    assertFalse(hedged.toCompletionStage().toCompletableFuture().isDone());
+    launched.get(1).complete(Result.forError(TestError.UNAVAILABLE));
+    assertEquals(Result.forError(TestError.UNAVAILABLE), hedged.getBlocking());
+    runScheduled();
+    assertEquals(2, launched.size());
+  }
+
+  @Test
+  public void testCancelledBeforeAttempts() {
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.noneOf(TestError.class), policy(2));
+    hedged.toCompletionStage().toCompletableFuture().cancel(true);
+    assertTrue(launched.get(0).isCancelled());
+    runScheduled();
+    assertEquals(1, launched.size());
+  }
+
+  @Test
+  public void testHedgeTimerCancelled() {
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.noneOf(TestError.class), policy(3));
+    assertEquals(1, scheduled.size());
+    launched.get(0).complete(Result.forValue("1"));
+    assertEquals(Result.forValue("1"), hedged.getBlocking());
+    assertTrue(scheduled.isEmpty());
+  }
+
+  @Test
+  public void testLosingAttemptLatencyRecorded() {
+    final HedgePolicy policy = HedgePolicy.adaptive(1, Duration.ofSeconds(1), 2).withTimer(timer).withExecutor(Runnable::run);
+    // 32 winners and 32 cancelled losers make the 64 samples needed for the percentile:
+    for (int i = 0; i < 32; i++) {
+      launched.clear();
+      final CompletionResult<String, TestError> hedged = CompletionResult.hedged(this::launch, EnumSet.noneOf(TestError.class), policy);
+      runScheduled();
+      launched.get(1).complete(Result.forValue("2"));
+      assertEquals(Result.forValue("2"), hedged.getBlocking());
+      assertTrue(launched.get(0).isCancelled());
+    }
+    assertTrue(policy.delay().compareTo(Duration.ofSeconds(1)) < 0);
+  }
+
+  @Test
+  public void testAttemptsStartedOnExecutor() {
+    final List<Runnable> dispatched = new ArrayList<>();
+    final CompletionResult<String, TestError> hedged =
+        CompletionResult.hedged(this::launch, EnumSet.noneOf(TestError.class), policy(2).withExecutor(dispatched::add));
+    runScheduled();
+    // the timer task only handed the attempt off:
+    assertEquals(1, launched.size());
+    assertEquals(1, dispatched.size());
+    dispatched.get(0).run();
+    assertEquals(2, launched.size());
+    launched.get(1).complete(Result.forValue("2"));
+    assertEquals(Result.forValue("2"), hedged.getBlocking());
+  }
+
+  @Test
+  public void testAdaptiveDelay() {
+    final HedgePolicy policy = HedgePolicy.adaptive(0.5, Duration.ofSeconds(1), 2).withTimer(timer);
+    assertEquals(Duration.ofSeconds(1), policy.delay());
+    for (int i = 1; i <= 64; i++) {
+      policy.recordLatency(i);
+    }
+    assertEquals(Duration.ofNanos(32), policy.delay());
+  }
+
+  private HedgePolicy policy(final int maxAttempts) {
+    return HedgePolicy.fixedDelay(Duration.ofMillis(10), maxAttempts).withTimer(timer).withExecutor(Runnable::run);
+  }
+
+  private CompletionResult<String, TestError> launch() {
+    final CompletableFuture<Result<String, TestError>> future = new CompletableFuture<>();
+    launched.add(future);
+    return CompletionResult.forStageResult(future);
+  }
+
+  private void runScheduled() {
+    final List<Runnable> tasks = new ArrayList<>(scheduled);
+    scheduled.clear();
+    tasks.forEach(Runnable::run);
+  }
+
+  private enum TestError {
+    NOT_FOUND,
+    UNAVAILABLE
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class IterationTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  @Test
+  public void testSynchronousSteps() {
+    final CompletionResult<Integer, TestError> iteration =
+        CompletionResult.iterateUntil(0, i -> CompletionResult.forValue(i + 1), i -> i == 1_000_000);
+    assertEquals(Result.forValue(1_000_000), iteration.getBlocking());
+  }
+
+  @Test
+  public void testAsynchronousSteps() {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final CompletionResult<Integer, TestError> iteration = CompletionResult.iterateUntil(
+          0,
+          i -> CompletionResult.<Integer, TestError>forValue(i).thenApplyValueAsync(v -> v + 1, executor),
+          i -> i == 10_000);
+      assertEquals(Result.forValue(10_000), iteration.getBlocking());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testError() {
+    final CompletionResult<Integer, TestError> iteration = CompletionResult.iterateUntil(
+        0,
+        i -> i < 3 ? CompletionResult.forValue(i + 1) : CompletionResult.forError(TestError.END_OF_PAGES),
+        i -> false);
+    assertEquals(Result.forError(TestError.END_OF_PAGES), iteration.getBlocking());
+  }
+
+  @Test
+  public void testCancelled() {
+    final List<CompletableFuture<Result<Integer, TestError>>> steps = new ArrayList<>();
+    final CompletionResult<Integer, TestError> iteration = CompletionResult.iterateUntil(0, i -> {
+      final CompletableFuture<Result<Integer, TestError>> step = new CompletableFuture<>();
+      steps.add(step);
+      return CompletionResult.forStageResult(step);
+    }, i -> false);
+    iteration.toCompletionStage().toCompletableFuture().cancel(true);
+    assertEquals(1, steps.size());
+    assertTrue(iteration.toCompletionStage().toCompletableFuture().isCancelled());
+    assertTrue(steps.get(0).isCancelled());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullInitial() {
+    CompletionResult.<Integer, TestError>iterateUntil(null, CompletionResult::forValue, i -> true);
+  }
+
+  private enum TestError {
+    END_OF_PAGES
+  }
+}
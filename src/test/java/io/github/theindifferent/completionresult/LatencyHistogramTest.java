@@ -0,0 +1,77 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void testBucketBounds() {
+    for (long value = 0; value < 100_000; value++) {
+      final int index = LatencyHistogram.index(value);
+      assertTrue(value <= LatencyHistogram.highestValue(index));
+      assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+    }
+    assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.BUCKETS - 1));
+  }
+
+  @Test
+  public void testRelativeError() {
+    final Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      final long value = random.nextLong() >>> (1 + random.nextInt(63));
+      final long reported = LatencyHistogram.highestValue(LatencyHistogram.index(value));
+      assertTrue(reported >= value);
+      assertTrue(reported - value <= value / LatencyHistogram.SUB_BUCKETS);
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    histogram.record(-1);
+    final long[] counts = histogram.counts();
+    assertEquals(0, LatencyHistogram.valueAtPercentile(counts, 0));
+    assertEquals(LatencyHistogram.highestValue(LatencyHistogram.index(500)), LatencyHistogram.valueAtPercentile(counts, 50));
+    assertEquals(LatencyHistogram.highestValue(LatencyHistogram.index(1000)), LatencyHistogram.valueAtPercentile(counts, 100));
+    assertEquals(0, LatencyHistogram.valueAtPercentile(new long[LatencyHistogram.BUCKETS], 99));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class PrimitiveResultTest {
+
+  @Test
+  public void testLongResult() {
+    final LongResult<TestError> value = LongResult.forValue(42L);
+    assertTrue(value.isValue());
+    assertFalse(value.isError());
+    assertEquals(42L, value.value());
+    assertEquals(LongResult.forValue(43L), value.map(v -> v + 1));
+    assertEquals(Result.forValue("42"), value.mapToObj(Long::toString));
+    assertEquals(Result.forValue(42L), value.boxed());
+    assertEquals(LongResult.forValue(42L), value);
+    assertEquals(LongResult.forValue(42L).hashCode(), value.hashCode());
+    try {
+      value.error();
+      fail("Error was returned for value result");
+    } catch (final IllegalStateException expected) {
+      // value result
+    }
+
+    final LongResult<TestError> error = LongResult.forError(TestError.FIRST);
+    assertSame(error, LongResult.forError(TestError.FIRST));
+    assertSame(error, error.map(v -> v + 1));
+    assertEquals(Result.forError(TestError.FIRST), error.mapToObj(Long::toString));
+    assertEquals(TestError.FIRST, error.error());
+    assertNotEquals(LongResult.forValue(0L), error);
+    try {
+      error.value();
+      fail("Value was returned for error result");
+    } catch (final IllegalStateException expected) {
+      // error result
+    }
+  }
+
+  @Test
+  public void testIntResult() {
+    final IntResult<TestError> value = IntResult.forValue(7);
+    assertEquals(7, value.value());
+    assertEquals(IntResult.forValue(14), value.map(v -> v * 2));
+    assertEquals(Result.forValue(7), value.boxed());
+    assertSame(IntResult.forError(TestError.SECOND), IntResult.<TestError>forError(TestError.SECOND).map(v -> v * 2));
+    assertNotEquals(IntResult.forError(TestError.FIRST), IntResult.forError(TestError.SECOND));
+  }
+
+  @Test
+  public void testDoubleResult() {
+    final DoubleResult<TestError> value = DoubleResult.forValue(0.5);
+    assertEquals(0.5, value.value(), 0);
+    assertEquals(DoubleResult.forValue(1.0), value.map(v -> v * 2));
+    assertEquals(DoubleResult.forValue(Double.NaN), DoubleResult.forValue(Double.NaN));
+    assertNotEquals(DoubleResult.forValue(0.0), DoubleResult.forValue(-0.0));
+    assertEquals(Result.forError(TestError.FIRST), DoubleResult.<TestError>forError(TestError.FIRST).boxed());
+  }
+
+  private enum TestError {
+    FIRST,
+    SECOND
+  }
+}
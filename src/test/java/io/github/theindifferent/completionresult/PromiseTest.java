@@ -0,0 +1,125 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+
+public class PromiseTest {
+
+  @Test
+  public void testCallbacksInOrder() {
+    final Promise<String> promise = new Promise<>();
+    final List<String> calls = new ArrayList<>();
+    promise.subscribe((value, throwable) -> calls.add("1" + value));
+    promise.subscribe((value, throwable) -> {
+      throw new IllegalStateException();
+    });
+    promise.subscribe((value, throwable) -> calls.add("2" + value));
+    assertTrue(promise.complete("a"));
+    assertFalse(promise.complete("b"));
+    promise.subscribe((value, throwable) -> calls.add("3" + value));
+    assertEquals(Arrays.asList("1a", "2a", "3a"), calls);
+  }
+
+  @Test
+  public void testNullValue() {
+    final Promise<String> promise = new Promise<>();
+    promise.complete(null);
+    assertTrue(promise.isDone());
+    assertNull(promise.join());
+    promise.subscribe((value, throwable) -> {
+      assertNull(value);
+      assertNull(throwable);
+    });
+  }
+
+  @Test
+  public void testFailure() {
+    final Promise<String> promise = new Promise<>();
+    final IllegalStateException expected = new IllegalStateException();
+    promise.fail(expected);
+    promise.subscribe((value, throwable) -> assertSame(expected, throwable));
+    try {
+      promise.join();
+      fail("Failed promise should throw");
+    } catch (final CompletionException ex) {
+      assertSame(expected, ex.getCause());
+    }
+  }
+
+  @Test
+  public void testCompletableFutureView() {
+    final Promise<String> promise = new Promise<>();
+    final CompletableFuture<String> future = promise.toCompletableFuture();
+    assertSame(future, promise.toCompletableFuture());
+    promise.complete("a");
+    assertEquals("a", future.join());
+    final Promise<String> cancelled = new Promise<>();
+    cancelled.toCompletableFuture().cancel(true);
+    try {
+      cancelled.join();
+      fail("Cancelled promise should throw");
+    } catch (final CancellationException expected) {
+      assertTrue(cancelled.isDone());
+    }
+  }
+
+  @Test
+  public void testCancelHooks() {
+    final Promise<String> cancelled = new Promise<>();
+    final List<String> hooks = new ArrayList<>();
+    cancelled.onCancel(() -> hooks.add("before"));
+    assertTrue(cancelled.cancel());
+    assertFalse(cancelled.cancel());
+    cancelled.onCancel(() -> hooks.add("after"));
+    assertEquals(Arrays.asList("before", "after"), hooks);
+    // failed with a propagated cancellation, not cancelled itself:
+    final Promise<String> failed = new Promise<>();
+    failed.onCancel(() -> hooks.add("failed"));
+    failed.fail(new CancellationException());
+    assertFalse(failed.isCancelled());
+    assertEquals(2, hooks.size());
+  }
+}
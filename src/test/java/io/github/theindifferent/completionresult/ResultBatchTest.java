@@ -0,0 +1,234 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class ResultBatchTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  @Test
+  public void testColumns() {
+    final ResultBatch<Integer, TestError> batch = ResultBatch.of(TestError.class, results(130));
+    assertEquals(130, batch.size());
+    assertEquals(43, batch.valueCount());
+    assertEquals(87, batch.errorCount());
+    for (int i = 0; i < 130; i++) {
+      assertEquals(result(i), batch.result(i));
+      assertEquals(i % 3 == 2, batch.isValue(i));
+    }
+    assertEquals(Integer.valueOf(128), batch.value(128));
+    assertEquals(TestError.SECOND, batch.error(127));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testValueOfError() {
+    ResultBatch.of(TestError.class, results(3)).value(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testErrorOfValue() {
+    ResultBatch.of(TestError.class, results(3)).error(2);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndexOutOfBatch() {
+    ResultBatch.of(TestError.class, results(3)).result(3);
+  }
+
+  @Test
+  public void testMapValues() {
+    final List<String> mapped = new ArrayList<>();
+    ResultBatch.of(TestError.class, results(10))
+        .mapValues(value -> "v" + value)
+        .forEach(mapped::add, error -> mapped.add(error.name()));
+    assertEquals(Arrays.asList("FIRST", "SECOND", "v2", "FIRST", "SECOND", "v5", "FIRST", "SECOND", "v8", "FIRST"), mapped);
+  }
+
+  @Test
+  public void testMapErrors() {
+    final List<TestError> mapped = new ArrayList<>();
+    final ResultBatch<Integer, OtherError> batch = ResultBatch.of(TestError.class, results(10))
+        .mapErrors(OtherError.class, error -> {
+          mapped.add(error);
+          return error == TestError.FIRST ? OtherError.OTHER : OtherError.ANOTHER;
+        });
+    assertEquals(Arrays.asList(TestError.FIRST, TestError.SECOND), mapped);
+    assertEquals(Result.forError(OtherError.OTHER), batch.result(9));
+    assertEquals(Result.forError(OtherError.ANOTHER), batch.result(7));
+    assertEquals(Result.forValue(8), batch.result(8));
+  }
+
+  @Test
+  public void testCountByError() {
+    final EnumMap<TestError, Long> expected = new EnumMap<>(TestError.class);
+    expected.put(TestError.FIRST, 4L);
+    expected.put(TestError.SECOND, 3L);
+    assertEquals(expected, ResultBatch.of(TestError.class, results(10)).countByError());
+    final List<Result<Integer, TestError>> empty = Collections.emptyList();
+    assertEquals(Collections.emptyMap(), ResultBatch.of(TestError.class, empty).countByError());
+  }
+
+  @Test
+  public void testForEachValue() {
+    final List<Integer> values = new ArrayList<>();
+    ResultBatch.of(TestError.class, results(200)).forEachValue(values::add);
+    assertEquals(results(200).stream().filter(Result::isValue).map(Result::value).collect(Collectors.toList()), values);
+  }
+
+  @Test
+  public void testAllOf() throws InterruptedException, ExecutionException {
+    final List<CompletableFuture<Result<Integer, TestError>>> futures = new ArrayList<>();
+    final List<CompletionResult<Integer, TestError>> results = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+      futures.add(future);
+      results.add(CompletionResult.forStageResult(future));
+    }
+    final CompletionResult<ResultBatch<Integer, TestError>, TestError> batch = ResultBatch.allOf(TestError.class, results);
+    for (int i = 9; i >= 0; i--) {
+      futures.get(i).complete(result(i));
+    }
+    final ResultBatch<Integer, TestError> completed = batch.await().value();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(result(i), completed.result(i));
+    }
+  }
+
+  @Test
+  public void testAllOfException() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<ResultBatch<Integer, TestError>, TestError> batch = ResultBatch.allOf(
+        TestError.class, Arrays.asList(CompletionResult.forValue(1), CompletionResult.forStageResult(future)));
+    final IllegalStateException exception = new IllegalStateException();
+    future.completeExceptionally(exception);
+    try {
+      batch.await();
+    } catch (final ExecutionException e) {
+      assertEquals(exception, e.getCause());
+      return;
+    } catch (final InterruptedException e) {
+      throw new AssertionError(e);
+    }
+    throw new AssertionError("Batch completed");
+  }
+
+  @Test
+  public void testAllOfCancelled() {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    final CompletionResult<ResultBatch<Integer, TestError>, TestError> batch = ResultBatch.allOf(
+        TestError.class, Collections.singletonList(CompletionResult.forStageResult(future)));
+    assertTrue(batch.cancel());
+    assertTrue(future.isCancelled());
+  }
+
+  @Test
+  public void testUnbatch() throws InterruptedException, ExecutionException {
+    final CompletableFuture<Result<ResultBatch<Integer, TestError>, TestError>> future = new CompletableFuture<>();
+    final List<CompletionResult<Integer, TestError>> results = ResultBatch.unbatch(CompletionResult.forStageResult(future), 3);
+    future.complete(Result.forValue(ResultBatch.of(TestError.class, results(3))));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(result(i), results.get(i).await());
+    }
+    final List<CompletionResult<Integer, TestError>> failed = ResultBatch.unbatch(
+        CompletionResult.<ResultBatch<Integer, TestError>, TestError>forError(TestError.SECOND), 2);
+    assertEquals(Result.forError(TestError.SECOND), failed.get(1).await());
+  }
+
+  @Test
+  public void testUnbatchSizeMismatch() throws InterruptedException {
+    final List<CompletionResult<Integer, TestError>> results = ResultBatch.unbatch(
+        CompletionResult.forValue(ResultBatch.of(TestError.class, results(2))), 3);
+    try {
+      results.get(0).await();
+    } catch (final ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      return;
+    }
+    throw new AssertionError("Slot completed");
+  }
+
+  @Test
+  public void testToCompletionResults() throws InterruptedException, ExecutionException {
+    final List<CompletionResult<Integer, TestError>> results = ResultBatch.of(TestError.class, results(4)).toCompletionResults();
+    assertEquals(4, results.size());
+    assertEquals(result(3), results.get(3).await());
+    assertFalse(results.get(2).await().isError());
+  }
+
+  private static Result<Integer, TestError> result(final int i) {
+    switch (i % 3) {
+      case 0:
+        return Result.forError(TestError.FIRST);
+      case 1:
+        return Result.forError(TestError.SECOND);
+      default:
+        return Result.forValue(i);
+    }
+  }
+
+  private static List<Result<Integer, TestError>> results(final int count) {
+    final List<Result<Integer, TestError>> results = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      results.add(result(i));
+    }
+    return results;
+  }
+
+  private enum TestError {
+    FIRST,
+    SECOND,
+    THIRD
+  }
+
+  private enum OtherError {
+    OTHER,
+    ANOTHER
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+public class ResultCollectorsTest {
+
+  @Test
+  public void testToValuesOrFirstError() {
+    assertEquals(Result.forValue(Arrays.asList(1, 2, 3)),
+                 Stream.of(1, 2, 3).map(Result::<Integer, TestError>forValue).collect(ResultCollectors.toValuesOrFirstError()));
+    final Stream<Result<Integer, TestError>> withErrors = Stream.of(
+        Result.forValue(1), Result.forError(TestError.FIRST), Result.forError(TestError.SECOND));
+    assertEquals(Result.forError(TestError.FIRST), withErrors.collect(ResultCollectors.toValuesOrFirstError()));
+    assertEquals(Result.forValue(Collections.emptyList()),
+                 Stream.<Result<Integer, TestError>>empty().collect(ResultCollectors.toValuesOrFirstError()));
+  }
+
+  @Test
+  public void testToValuesOrFirstErrorParallel() {
+    final List<Integer> expected = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+    assertEquals(Result.forValue(expected),
+                 expected.parallelStream().map(Result::<Integer, TestError>forValue).collect(ResultCollectors.toValuesOrFirstError()));
+    assertEquals(Result.forError(TestError.FIRST),
+                 results(100_000).parallelStream().collect(ResultCollectors.toValuesOrFirstError()));
+  }
+
+  @Test
+  public void testPartitioningByOutcome() {
+    final Partition<Integer, TestError> partition = results(10).stream()
+        .collect(ResultCollectors.partitioningByOutcome(TestError.class));
+    assertEquals(Arrays.asList(2, 5, 8), partition.values());
+    assertEquals(4, partition.errorCount(TestError.FIRST));
+    assertEquals(3, partition.errorCount(TestError.SECOND));
+    assertEquals(0, partition.errorCount(TestError.THIRD));
+  }
+
+  @Test
+  public void testPartitioningByOutcomeParallel() {
+    final List<Result<Integer, TestError>> results = results(300_000);
+    final Partition<Integer, TestError> partition = results.parallelStream()
+        .collect(ResultCollectors.partitioningByOutcome(TestError.class));
+    final List<Integer> values = new ArrayList<>(partition.values());
+    Collections.sort(values);
+    assertEquals(results.stream().filter(Result::isValue).map(Result::value).collect(Collectors.toList()), values);
+    assertEquals(100_000, partition.errorCount(TestError.FIRST));
+    assertEquals(100_000, partition.errorCount(TestError.SECOND));
+  }
+
+  @Test
+  public void testGroupingByError() {
+    final EnumMap<TestError, Long> counts = results(300_000).parallelStream()
+        .collect(ResultCollectors.groupingByError(TestError.class));
+    assertEquals(2, counts.size());
+    assertEquals(Long.valueOf(100_000), counts.get(TestError.FIRST));
+    assertEquals(Long.valueOf(100_000), counts.get(TestError.SECOND));
+    assertTrue(Stream.<Result<Integer, TestError>>empty().collect(ResultCollectors.groupingByError(TestError.class)).isEmpty());
+  }
+
+  // FIRST, SECOND, value, repeated:
+  private static List<Result<Integer, TestError>> results(final int size) {
+    final List<Result<Integer, TestError>> results = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      if (i % 3 == 0) {
+        results.add(Result.forError(TestError.FIRST));
+      } else if (i % 3 == 1) {
+        results.add(Result.forError(TestError.SECOND));
+      } else {
+        results.add(Result.forValue(i));
+      }
+    }
+    return results;
+  }
+
+  private enum TestError {
+    FIRST,
+    SECOND,
+    THIRD
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class ResultMetricsTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  @Test
+  public void testOutcomes() {
+    final ResultMetrics metrics = ResultMetrics.create();
+    final CompletionResult<String, TestError> value = CompletionResult.forValue("a");
+    assertSame(value, value.instrument("load", metrics));
+    CompletionResult.forError(TestError.FIRST).instrument("load", metrics);
+    CompletionResult.forError(TestError.SECOND).instrument("load", metrics);
+    CompletionResult.forError(TestError.SECOND).instrument("load", metrics);
+    final CompletableFuture<Result<String, TestError>> failed = new CompletableFuture<>();
+    CompletionResult.forStageResult(failed).instrument("load", metrics);
+    failed.completeExceptionally(new IllegalStateException());
+    CompletionResult.forValue("b").instrument("store", metrics);
+
+    final InMemoryMetricsExporter exporter = new InMemoryMetricsExporter();
+    metrics.export(exporter);
+    assertEquals(Arrays.asList("load", "store"), Arrays.asList(exporter.snapshots().keySet().toArray()));
+    final MetricsSnapshot load = exporter.snapshot("load");
+    assertEquals(1, load.values());
+    assertEquals(1, load.errors(TestError.FIRST));
+    assertEquals(2, load.errors(TestError.SECOND));
+    assertEquals(0, load.errors(TestError.THIRD));
+    assertEquals(Arrays.asList(TestError.FIRST, TestError.SECOND), Arrays.asList(load.errors().keySet().toArray()));
+    assertEquals(1, load.exceptions());
+    assertEquals(5, load.count());
+    assertEquals(1, exporter.snapshot("store").count());
+    assertNull(exporter.snapshot("missing"));
+  }
+
+  @Test
+  public void testLatency() throws InterruptedException {
+    final ResultMetrics metrics = ResultMetrics.create();
+    final CompletableFuture<Result<String, TestError>> pending = new CompletableFuture<>();
+    CompletionResult.forStageResult(pending).instrument("slow", metrics);
+    Thread.sleep(20);
+    pending.complete(Result.forValue("a"));
+
+    final InMemoryMetricsExporter exporter = new InMemoryMetricsExporter();
+    metrics.export(exporter);
+    final MetricsSnapshot slow = exporter.snapshot("slow");
+    assertTrue(slow.latency(50).compareTo(Duration.ofMillis(20)) >= 0);
+    assertEquals(slow.latency(50), slow.latency(99.9));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPercentileOutOfRange() {
+    final ResultMetrics metrics = ResultMetrics.create();
+    CompletionResult.forValue("a").instrument("load", metrics);
+    final InMemoryMetricsExporter exporter = new InMemoryMetricsExporter();
+    metrics.export(exporter);
+    exporter.snapshot("load").latency(101);
+  }
+
+  private enum TestError {
+    FIRST,
+    SECOND,
+    THIRD
+  }
+}
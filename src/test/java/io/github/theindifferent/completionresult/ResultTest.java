@@ -33,6 +33,8 @@ package io.github.theindifferent.completionresult;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -83,7 +85,41 @@ public class ResultTest {
     assertEquals(Integer.valueOf(2), map.get(Result.forError(TestError.RANDOM_ERROR)));
   }
 
+  @Test
+  public void testErrorIsCanonical() {
+    assertSame(Result.forError(TestError.RANDOM_ERROR), Result.forError(TestError.RANDOM_ERROR));
+    assertSame(Result.forError(BodyError.WITH_BODY), Result.forError(BodyError.WITH_BODY));
+    assertEquals(BodyError.WITH_BODY, Result.forError(BodyError.WITH_BODY).error());
+    assertEquals(BodyError.PLAIN, Result.forError(BodyError.PLAIN).error());
+  }
+
+  @Test
+  public void testFold() {
+    final Result<String, TestError> value = Result.forValue("value");
+    final Result<String, TestError> error = Result.forError(TestError.RANDOM_ERROR);
+    assertEquals("value", value.fold(v -> v, Enum::name));
+    assertEquals("RANDOM_ERROR", error.fold(v -> v, Enum::name));
+    assertEquals("value", value.valueOr("other"));
+    assertEquals("other", error.valueOr("other"));
+    assertEquals(TestError.RANDOM_ERROR, error.errorOr(null));
+    assertNull(value.errorOr(null));
+    final StringBuilder visited = new StringBuilder();
+    value.ifValueOrElse(visited::append, e -> fail("Error consumer was invoked for value"));
+    error.ifValueOrElse(v -> fail("Value consumer was invoked for error"), e -> visited.append(e.name()));
+    assertEquals("valueRANDOM_ERROR", visited.toString());
+  }
+
   public enum TestError {
     RANDOM_ERROR
   }
+
+  public enum BodyError {
+    PLAIN,
+    WITH_BODY {
+      @Override
+      public String toString() {
+        return "body";
+      }
+    }
+  }
 }
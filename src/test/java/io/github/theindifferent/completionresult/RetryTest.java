@@ -0,0 +1,169 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class RetryTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final List<Long> delays = new ArrayList<>();
+  // runs the retries right away, recording the delays:
+  private final Timer timer = (task, delay, unit) -> {
+    delays.add(unit.toMillis(delay));
+    task.run();
+    return () -> false;
+  };
+  private final RetryPolicy policy = RetryPolicy
+      .exponentialBackoff(4, Duration.ofMillis(10), Duration.ofMillis(25))
+      .withJitter(0)
+      .withTimer(timer)
+      .withExecutor(Runnable::run);
+
+  @Test
+  public void testRetriesUntilValue() {
+    final AtomicInteger attempts = new AtomicInteger();
+    final CompletionResult<String, TestError> result = CompletionResult.retryOnError(
+        () -> attempts.incrementAndGet() < 3 ? CompletionResult.forError(TestError.UNAVAILABLE) : CompletionResult.forValue("1"),
+        EnumSet.of(TestError.UNAVAILABLE),
+        policy);
+    assertEquals(Result.forValue("1"), result.getBlocking());
+    assertEquals(3, attempts.get());
+    assertEquals(Arrays.asList(10L, 20L), delays);
+  }
+
+  @Test
+  public void testMaxAttempts() {
+    final AtomicInteger attempts = new AtomicInteger();
+    final CompletionResult<String, TestError> result = CompletionResult.retryOnError(
+        failing(attempts, TestError.UNAVAILABLE),
+        EnumSet.of(TestError.UNAVAILABLE),
+        policy);
+    assertEquals(Result.forError(TestError.UNAVAILABLE), result.getBlocking());
+    assertEquals(4, attempts.get());
+    assertEquals(Arrays.asList(10L, 20L, 25L), delays);
+  }
+
+  @Test
+  public void testNotRetryable() {
+    final AtomicInteger attempts = new AtomicInteger();
+    final CompletionResult<String, TestError> result = CompletionResult.retryOnError(
+        failing(attempts, TestError.NOT_FOUND),
+        EnumSet.of(TestError.UNAVAILABLE),
+        policy);
+    assertEquals(Result.forError(TestError.NOT_FOUND), result.getBlocking());
+    assertEquals(1, attempts.get());
+    final CompletionResult<String, TestError> none = CompletionResult.retryOnError(
+        failing(attempts, TestError.UNAVAILABLE),
+        Collections.emptySet(),
+        policy);
+    assertEquals(Result.forError(TestError.UNAVAILABLE), none.getBlocking());
+    assertEquals(2, attempts.get());
+  }
+
+  @Test
+  public void testBudget() {
+    final RetryBudget budget = RetryBudget.create(2, 0.5);
+    final AtomicInteger attempts = new AtomicInteger();
+    final CompletionResult<String, TestError> result = CompletionResult.retryOnError(
+        failing(attempts, TestError.UNAVAILABLE),
+        EnumSet.of(TestError.UNAVAILABLE),
+        policy.withBudget(budget));
+    assertEquals(Result.forError(TestError.UNAVAILABLE), result.getBlocking());
+    // full budget of two retries, the deposit of the request did not exceed it:
+    assertEquals(3, attempts.get());
+    assertEquals(0, budget.available());
+    attempts.set(0);
+    CompletionResult.retryOnError(failing(attempts, TestError.UNAVAILABLE), EnumSet.of(TestError.UNAVAILABLE), policy.withBudget(budget));
+    assertEquals(1, attempts.get());
+    CompletionResult.retryOnError(failing(attempts, TestError.UNAVAILABLE), EnumSet.of(TestError.UNAVAILABLE), policy.withBudget(budget));
+    // two requests deposited one token:
+    assertEquals(3, attempts.get());
+  }
+
+  @Test
+  public void testRetriesOnExecutor() {
+    final List<Runnable> dispatched = new ArrayList<>();
+    final AtomicInteger attempts = new AtomicInteger();
+    final CompletionResult<String, TestError> result = CompletionResult.retryOnError(
+        failing(attempts, TestError.UNAVAILABLE),
+        EnumSet.of(TestError.UNAVAILABLE),
+        policy.withExecutor(dispatched::add));
+    // the timer task only handed the retry off:
+    assertEquals(1, attempts.get());
+    assertEquals(1, dispatched.size());
+    dispatched.get(0).run();
+    assertEquals(2, attempts.get());
+    assertEquals(2, dispatched.size());
+    dispatched.get(1).run();
+    dispatched.get(2).run();
+    assertEquals(Result.forError(TestError.UNAVAILABLE), result.getBlocking());
+    assertEquals(4, attempts.get());
+  }
+
+  @Test
+  public void testJitter() {
+    final RetryPolicy jittered = RetryPolicy.exponentialBackoff(2, Duration.ofMillis(100), Duration.ofMillis(100));
+    for (int i = 0; i < 100; i++) {
+      final long delay = jittered.delayNanos(1);
+      assertTrue(delay >= 0 && delay <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+  }
+
+  private static Supplier<CompletionResult<String, TestError>> failing(final AtomicInteger attempts, final TestError error) {
+    return () -> {
+      attempts.incrementAndGet();
+      return CompletionResult.forError(error);
+    };
+  }
+
+  private enum TestError {
+    UNAVAILABLE,
+    NOT_FOUND
+  }
+}
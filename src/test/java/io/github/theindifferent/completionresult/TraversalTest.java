@@ -0,0 +1,192 @@
+/*
+ *  BSD 3-Clause License
+ *
+ *  Copyright (c) 2018, Stanislav "The Indifferent" Baiduzhyi
+ *  All rights reserved.
+ *
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ *
+ *  * Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ *  * Neither the name of the copyright holder nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ *  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ *  AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ *  IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ *  FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ *  DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ *  SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ *  CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ *  OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ *  OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package io.github.theindifferent.completionresult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+public class TraversalTest {
+
+  @Rule
+  public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+  private final List<CompletableFuture<Result<Integer, TestError>>> launched = new ArrayList<>();
+
+  @Test
+  public void testOrderedRespectsConcurrency() {
+    final CompletionResult<List<Integer>, TestError> traversal =
+        CompletionResult.traverse(Arrays.asList(0, 1, 2, 3, 4), this::launch, 2);
+    assertEquals(2, launched.size());
+    launched.get(1).complete(Result.forValue(1));
+    assertEquals(3, launched.size());
+    launched.get(2).complete(Result.forValue(2));
+    launched.get(0).complete(Result.forValue(0));
+    assertEquals(5, launched.size());
+    launched.get(4).complete(Result.forValue(4));
+    assertFalse(traversal.toCompletionStage().toCompletableFuture().isDone());
+    launched.get(3).complete(Result.forValue(3));
+    assertEquals(Result.forValue(Arrays.asList(0, 1, 2, 3, 4)), traversal.getBlocking());
+  }
+
+  @Test
+  public void testUnordered() {
+    final CompletionResult<List<Integer>, TestError> traversal =
+        CompletionResult.traverseUnordered(Arrays.asList(0, 1, 2), this::launch, 3);
+    launched.get(2).complete(Result.forValue(2));
+    launched.get(0).complete(Result.forValue(0));
+    launched.get(1).complete(Result.forValue(1));
+    assertEquals(Result.forValue(Arrays.asList(2, 0, 1)), traversal.getBlocking());
+  }
+
+  @Test
+  public void testFailFast() {
+    final CompletionResult<List<Integer>, TestError> traversal =
+        CompletionResult.traverse(Arrays.asList(0, 1, 2, 3), this::launch, 2);
+    launched.get(0).complete(Result.forError(TestError.FAILED));
+    assertEquals(Result.forError(TestError.FAILED), traversal.getBlocking());
+    // the result still in flight was cancelled:
+    assertTrue(launched.get(1).isCancelled());
+    launched.get(1).complete(Result.forValue(1));
+    // no more inputs were mapped after the error:
+    assertEquals(2, launched.size());
+  }
+
+  @Test
+  public void testFailFastKeepsSharedResults() {
+    final CompletableFuture<Result<Integer, TestError>> source = new CompletableFuture<>();
+    final CompletionResult<Integer, TestError> shared = CompletionResult.forStageResult(source);
+    final CompletionResult<Integer, TestError> sibling = shared.thenApplyValue(value -> value + 1);
+    final CompletionResult<List<Integer>, TestError> traversal = CompletionResult.traverse(
+        Arrays.asList(0, 1, 2),
+        i -> i == 0 ? launch(i) : i == 1 ? shared.thenApplyValue(value -> value) : shared,
+        3);
+    launched.get(0).complete(Result.forError(TestError.FAILED));
+    assertEquals(Result.forError(TestError.FAILED), traversal.getBlocking());
+    assertFalse(source.isCancelled());
+    source.complete(Result.forValue(1));
+    assertEquals(Result.forValue(2), sibling.getBlocking());
+  }
+
+  @Test
+  public void testCollectAll() {
+    final CompletionResult<List<Result<Integer, TestError>>, TestError> traversal = CompletionResult.traverseAll(
+        Arrays.asList(0, 1, 2),
+        i -> i == 1 ? CompletionResult.forError(TestError.FAILED) : CompletionResult.forValue(i),
+        1);
+    assertEquals(
+        Result.forValue(Arrays.asList(Result.forValue(0), Result.forError(TestError.FAILED), Result.forValue(2))),
+        traversal.getBlocking());
+  }
+
+  @Test
+  public void testCollectAllUnordered() {
+    final CompletionResult<List<Result<Integer, TestError>>, TestError> traversal =
+        CompletionResult.traverseAllUnordered(Arrays.asList(0, 1), this::launch, 2);
+    launched.get(1).complete(Result.forError(TestError.FAILED));
+    launched.get(0).complete(Result.forValue(0));
+    assertEquals(Result.forValue(Arrays.asList(Result.forError(TestError.FAILED), Result.forValue(0))), traversal.getBlocking());
+  }
+
+  @Test
+  public void testManyCompletedInputs() {
+    final List<Integer> inputs = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+    final Result<List<Integer>, TestError> result = CompletionResult
+        .<Integer, Integer, TestError>traverse(inputs, CompletionResult::forValue, 4)
+        .getBlocking();
+    assertTrue(result.isValue());
+    assertEquals(inputs, result.value());
+  }
+
+  @Test
+  public void testFailingIterator() {
+    final CustomException exception = new CustomException();
+    final Iterable<Integer> inputs = () -> new Iterator<Integer>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == 1) {
+          throw exception;
+        }
+        return true;
+      }
+
+      @Override
+      public Integer next() {
+        return next++;
+      }
+    };
+    final CompletionResult<List<Integer>, TestError> traversal = CompletionResult.traverse(inputs, this::launch, 1);
+    // the iterator is advanced by the completion of the first result:
+    launched.get(0).complete(Result.forValue(0));
+    try {
+      traversal.getBlocking();
+      fail();
+    } catch (final CompletionException expected) {
+      assertSame(exception, expected.getCause());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidConcurrency() {
+    CompletionResult.traverse(Arrays.asList(0, 1), this::launch, 0);
+  }
+
+  private CompletionResult<Integer, TestError> launch(final Integer input) {
+    final CompletableFuture<Result<Integer, TestError>> future = new CompletableFuture<>();
+    launched.add(future);
+    return CompletionResult.forStageResult(future);
+  }
+
+  public enum TestError {
+    FAILED
+  }
+
+  private static class CustomException extends RuntimeException {
+  }
+}